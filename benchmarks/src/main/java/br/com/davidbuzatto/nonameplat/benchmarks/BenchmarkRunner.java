@@ -0,0 +1,37 @@
+package br.com.davidbuzatto.nonameplat.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes the results as JSON.
+ * 
+ * Usage: BenchmarkRunner [results.json] [benchmark regex]
+ * 
+ * Must run from the game folder, since the worlds load their images from
+ * resources/.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class BenchmarkRunner {
+    
+    public static void main( String[] args ) throws RunnerException {
+        
+        String results = args.length > 0 ? args[0] : "jmh-results.json";
+        String include = args.length > 1 ? args[1] : BenchmarkRunner.class.getPackageName() + ".*";
+        
+        Options options = new OptionsBuilder()
+                .include( include )
+                .jvmArgsAppend( "-Djava.awt.headless=true" )
+                .resultFormat( ResultFormatType.JSON )
+                .result( results )
+                .build();
+        
+        new Runner( options ).run();
+        
+    }
+    
+}
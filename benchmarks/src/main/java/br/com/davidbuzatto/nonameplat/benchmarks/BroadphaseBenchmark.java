@@ -0,0 +1,114 @@
+package br.com.davidbuzatto.nonameplat.benchmarks;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.nonameplat.collision.Broadphase;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The broadphase backends (the quadtree among them): building, updating
+ * the moved boxes, finding all the pairs and answering queries.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class BroadphaseBenchmark {
+    
+    private static final double WORLD_WIDTH = 64 * 1024;
+    private static final double WORLD_HEIGHT = 64 * 12;
+    
+    @Param( { "QUADTREE", "SPATIAL_HASH", "SWEEP_AND_PRUNE" } )
+    private Broadphase.Type type;
+    
+    @Param( { "100", "1000", "10000" } )
+    private int count;
+    
+    private Broadphase broadphase;
+    private List<AABB> aabbs;
+    private List<AABB> result;
+    private double[] steps;
+    private int frame;
+    
+    @Setup( Level.Trial )
+    public void setup() {
+        
+        Random random = new Random( 42 );
+        
+        aabbs = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            double x = random.nextDouble() * ( WORLD_WIDTH - 64 );
+            double y = random.nextDouble() * ( WORLD_HEIGHT - 64 );
+            aabbs.add( new AABB( x, y, x + 54, y + 60, AABB.Type.DYNAMIC, null ) );
+        }
+        
+        // small moves, like walking enemies, back and forth
+        steps = new double[count];
+        for ( int i = 0; i < count; i++ ) {
+            steps[i] = random.nextDouble() * 4 - 2;
+        }
+        
+        broadphase = type.create( 128, WORLD_WIDTH, WORLD_HEIGHT );
+        for ( AABB a : aabbs ) {
+            broadphase.insert( a );
+        }
+        
+        result = new ArrayList<>();
+        
+    }
+    
+    @Benchmark
+    public Broadphase build() {
+        Broadphase b = type.create( 128, WORLD_WIDTH, WORLD_HEIGHT );
+        for ( int i = 0; i < aabbs.size(); i++ ) {
+            b.insert( aabbs.get( i ) );
+        }
+        return b;
+    }
+    
+    @Benchmark
+    public void moveAll() {
+        
+        double sign = ( frame++ & 64 ) == 0 ? 1 : -1;
+        
+        for ( int i = 0; i < aabbs.size(); i++ ) {
+            AABB a = aabbs.get( i );
+            a.moveTo( a.x1 + steps[i] * sign, a.y1 );
+            broadphase.move( a );
+        }
+        
+    }
+    
+    @Benchmark
+    public void forEachPair( Blackhole bh ) {
+        broadphase.forEachPair( ( a, b ) -> bh.consume( a ) );
+    }
+    
+    @Benchmark
+    public int queryScreen() {
+        result.clear();
+        double x = ( frame++ * 97 ) % ( WORLD_WIDTH - 896 );
+        broadphase.query( x, 0, x + 896, 512, result );
+        return result.size();
+    }
+    
+}
@@ -0,0 +1,129 @@
+package br.com.davidbuzatto.nonameplat.benchmarks;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.nonameplat.collision.ContactListener;
+import br.com.davidbuzatto.nonameplat.collision.ContactPass;
+import br.com.davidbuzatto.nonameplat.entities.characters.BaseEnemy;
+import br.com.davidbuzatto.nonameplat.entities.characters.Hero;
+import br.com.davidbuzatto.nonameplat.entities.items.Coin;
+import br.com.davidbuzatto.nonameplat.world.World;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finding the contacts of a step: only the hero against solids and
+ * entities, with the contact pass, and also every enemy against solids,
+ * queried one by one as EnemySimulator does.
+ * The contacts are counted, not resolved, so the world doesn't change
+ * between invocations.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class CollisionBenchmark {
+    
+    @Param( { "16", "64", "240" } )
+    private int enemies;
+    
+    private String level;
+    private World world;
+    private ContactPass contactPass;
+    private ContactListener counter;
+    private List<AABB> heroAABBs;
+    private List<AABB> enemyAABBs;
+    private List<AABB> nearbySolids;
+    private int contacts;
+    
+    @Setup( Level.Trial )
+    public void setup() throws IOException {
+        
+        level = LevelGenerator.write( 256, enemies, 42 );
+        world = new World( level, World.DEFAULT_BROADPHASE, World.DEFAULT_SIMULATION_RATE, 1 );
+        
+        // let the enemies land
+        for ( int i = 0; i < World.DEFAULT_SIMULATION_RATE; i++ ) {
+            world.step();
+        }
+        
+        contactPass = new ContactPass();
+        heroAABBs = List.of( world.getHero().getAABB() );
+        enemyAABBs = new ArrayList<>();
+        for ( BaseEnemy e : world.getEnemies() ) {
+            enemyAABBs.add( e.getAABB() );
+        }
+        nearbySolids = new ArrayList<>();
+        
+        counter = new ContactListener() {
+            @Override
+            public void heroSolid( Hero hero, AABB solid ) {
+                contacts++;
+            }
+            @Override
+            public void heroEnemy( Hero hero, BaseEnemy enemy ) {
+                contacts++;
+            }
+            @Override
+            public void heroCoin( Hero hero, Coin coin ) {
+                contacts++;
+            }
+            @Override
+            public void enemySolid( BaseEnemy enemy, AABB solid ) {
+                contacts++;
+            }
+        };
+        
+    }
+    
+    @TearDown( Level.Trial )
+    public void tearDown() throws IOException {
+        world.dispose();
+        LevelGenerator.delete( level );
+    }
+    
+    @Benchmark
+    public int heroContacts() {
+        contacts = 0;
+        contactPass.run( world.getTileGrid(), world.getBroadphase(), heroAABBs, 0, counter );
+        return contacts;
+    }
+    
+    @Benchmark
+    public int allContacts() {
+        contacts = 0;
+        contactPass.run( world.getTileGrid(), world.getBroadphase(), heroAABBs, 0, counter );
+        
+        for ( int i = 0; i < enemyAABBs.size(); i++ ) {
+            AABB a = enemyAABBs.get( i );
+            if ( a.active ) {
+                nearbySolids.clear();
+                ContactPass.querySolids( world.getTileGrid(), a, nearbySolids );
+                for ( int j = 0; j < nearbySolids.size(); j++ ) {
+                    counter.enemySolid( (BaseEnemy) a.referencedObject, nearbySolids.get( j ) );
+                }
+            }
+        }
+        
+        return contacts;
+    }
+    
+}
@@ -0,0 +1,79 @@
+package br.com.davidbuzatto.nonameplat.benchmarks;
+
+import br.com.davidbuzatto.nonameplat.collision.EntityContactResolver;
+import br.com.davidbuzatto.nonameplat.world.EnemySimulator;
+import br.com.davidbuzatto.nonameplat.world.World;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Updating N enemies (moving, resolving the solids and finishing the
+ * update), serially and in parallel.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class EnemyUpdateBenchmark {
+    
+    @Param( { "16", "64", "240" } )
+    private int enemies;
+    
+    @Param( { "1", "4" } )
+    private int threads;
+    
+    private String level;
+    private World world;
+    private EnemySimulator simulator;
+    private EntityContactResolver resolver;
+    
+    @Setup( Level.Trial )
+    public void setupTrial() throws IOException {
+        level = LevelGenerator.write( 256, enemies, 42 );
+        simulator = new EnemySimulator( threads );
+        resolver = new EntityContactResolver();
+    }
+    
+    /**
+     * A new world each iteration, so the enemies are always walking.
+     */
+    @Setup( Level.Iteration )
+    public void setupIteration() {
+        world = new World( level, World.DEFAULT_BROADPHASE, World.DEFAULT_SIMULATION_RATE, 1 );
+    }
+    
+    @TearDown( Level.Iteration )
+    public void tearDownIteration() {
+        world.dispose();
+    }
+    
+    @TearDown( Level.Trial )
+    public void tearDownTrial() throws IOException {
+        simulator.dispose();
+        LevelGenerator.delete( level );
+    }
+    
+    @Benchmark
+    public void update() {
+        simulator.move( world.getEnemies(), world.getTileGrid(), resolver, world.getStepTime() );
+        simulator.finishUpdate( world.getEnemies(), world.getStepTime() );
+    }
+    
+}
@@ -0,0 +1,128 @@
+package br.com.davidbuzatto.nonameplat.benchmarks;
+
+import br.com.davidbuzatto.nonameplat.world.LevelCompiler;
+import br.com.davidbuzatto.nonameplat.world.LevelData;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates levels in the ASCII format, with ground, floating platforms,
+ * coins and enemies, for the benchmarks.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class LevelGenerator {
+    
+    public static final int LINES = 12;
+    
+    // enemies go in the columns that start active around the hero
+    public static final int ENEMY_COLUMNS = 28;
+    public static final int MAX_ENEMIES = ENEMY_COLUMNS * ( LINES - 3 );
+    
+    /**
+     * @param columns width of the level.
+     * @param enemies enemies placed near the hero, so they are all active
+     * when the level starts. At most MAX_ENEMIES.
+     * @param seed seed of the random platforms and coins.
+     */
+    public static String generate( int columns, int enemies, long seed ) {
+        
+        if ( columns < ENEMY_COLUMNS + 16 ) {
+            throw new IllegalArgumentException( "at least " + ( ENEMY_COLUMNS + 16 ) + " columns are needed" );
+        }
+        
+        if ( enemies > MAX_ENEMIES ) {
+            throw new IllegalArgumentException( "at most " + MAX_ENEMIES + " enemies fit near the hero" );
+        }
+        
+        char[][] cells = new char[LINES][columns];
+        Random random = new Random( seed );
+        
+        for ( char[] line : cells ) {
+            Arrays.fill( line, LevelData.EMPTY );
+        }
+        
+        // walls and ground
+        for ( int line = 0; line < LINES - 1; line++ ) {
+            cells[line][0] = 'G';
+            cells[line][columns - 1] = 'E';
+        }
+        for ( int column = 1; column < columns - 1; column++ ) {
+            cells[LINES - 1][column] = 'B';
+        }
+        cells[LINES - 1][0] = 'M';
+        cells[LINES - 1][columns - 1] = 'N';
+        
+        // platforms with coins over them
+        for ( int column = 8; column < columns - 12; column += 6 + random.nextInt( 6 ) ) {
+            int line = 4 + random.nextInt( LINES - 7 );
+            int length = 3 + random.nextInt( 5 );
+            for ( int i = 0; i < length; i++ ) {
+                cells[line][column + i] = 'J';
+                if ( random.nextInt( 3 ) == 0 ) {
+                    cells[line - 1][column + i] = LevelData.COIN;
+                }
+            }
+        }
+        
+        // hero at the left, enemies packed in the columns next to it
+        cells[LINES - 2][2] = LevelData.HERO;
+        
+        for ( int i = 0; i < enemies; i++ ) {
+            int column = 4 + i % ENEMY_COLUMNS;
+            int line = LINES - 2 - i / ENEMY_COLUMNS;
+            cells[line][column] = LevelData.ENEMY;
+        }
+        
+        StringBuilder sb = new StringBuilder( LINES * ( columns + 1 ) );
+        for ( char[] line : cells ) {
+            sb.append( line ).append( '\n' );
+        }
+        
+        return sb.toString();
+        
+    }
+    
+    /**
+     * Writes a generated level to a temporary folder, in text and
+     * compiled forms.
+     * 
+     * @return the base path of the level, without extension.
+     */
+    public static String write( int columns, int enemies, long seed ) throws IOException {
+        
+        Path dir = Files.createTempDirectory( "nonameplat-bench" );
+        Path text = dir.resolve( "level" + LevelCompiler.TEXT_EXTENSION );
+        Files.writeString( text, generate( columns, enemies, seed ), StandardCharsets.UTF_8 );
+        
+        String basePath = dir.resolve( "level" ).toString();
+        LevelCompiler.compile( LevelCompiler.load( basePath ), LevelCompiler.DEFAULT_CHUNK_COLUMNS, Path.of( basePath + LevelCompiler.COMPILED_EXTENSION ) );
+        
+        return basePath;
+        
+    }
+    
+    /**
+     * Deletes the temporary folder of a level written by write.
+     * 
+     * @param basePath the path returned by write.
+     */
+    public static void delete( String basePath ) throws IOException {
+        
+        Path dir = Path.of( basePath ).getParent();
+        
+        try ( Stream<Path> walk = Files.walk( dir ) ) {
+            for ( Path p : walk.sorted( Comparator.reverseOrder() ).toList() ) {
+                Files.delete( p );
+            }
+        }
+        
+    }
+    
+}
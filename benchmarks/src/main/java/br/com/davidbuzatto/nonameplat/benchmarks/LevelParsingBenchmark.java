@@ -0,0 +1,113 @@
+package br.com.davidbuzatto.nonameplat.benchmarks;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.nonameplat.entities.EntityStore;
+import br.com.davidbuzatto.nonameplat.entities.tiles.Tile;
+import br.com.davidbuzatto.nonameplat.world.LevelCompiler;
+import br.com.davidbuzatto.nonameplat.world.LevelData;
+import br.com.davidbuzatto.nonameplat.world.MappedLevelData;
+import br.com.davidbuzatto.nonameplat.world.SolidMerger;
+import br.com.davidbuzatto.nonameplat.world.TextLevelData;
+import br.com.davidbuzatto.nonameplat.world.TileGrid;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Loading the map data: parsing the ASCII format, opening the compiled one
+ * and merging the solid tiles, on generated levels of several widths.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class LevelParsingBenchmark {
+    
+    @Param( { "256", "1024", "4096" } )
+    private int columns;
+    
+    private String text;
+    private String levelPath;
+    private Path compiled;
+    private TileGrid grid;
+    private List<AABB> solids;
+    
+    @Setup( Level.Trial )
+    public void setup() throws IOException {
+        
+        text = LevelGenerator.generate( columns, 32, 42 );
+        levelPath = LevelGenerator.write( columns, 32, 42 );
+        compiled = Path.of( levelPath + LevelCompiler.COMPILED_EXTENSION );
+        
+        // merging only looks at which cells are filled
+        LevelData level = TextLevelData.fromText( text );
+        Tile tile = new Tile( new EntityStore(), 0, 0 );
+        grid = new TileGrid( level.getColumns(), level.getLines(), 64 );
+        for ( int line = 0; line < level.getLines(); line++ ) {
+            for ( int column = 0; column < level.getColumns(); column++ ) {
+                if ( level.getTile( column, line ) != LevelData.EMPTY ) {
+                    grid.set( column, line, tile );
+                }
+            }
+        }
+        solids = new ArrayList<>();
+        
+    }
+    
+    @TearDown( Level.Trial )
+    public void tearDown() throws IOException {
+        LevelGenerator.delete( levelPath );
+    }
+    
+    @Benchmark
+    public LevelData parseText() {
+        return TextLevelData.fromText( text );
+    }
+    
+    @Benchmark
+    public void openCompiled( Blackhole bh ) throws IOException {
+        
+        LevelData level = MappedLevelData.open( compiled );
+        
+        // touch every cell, as loading all the chunks would
+        int filled = 0;
+        for ( int column = 0; column < level.getColumns(); column++ ) {
+            for ( int line = 0; line < level.getLines(); line++ ) {
+                if ( level.getTile( column, line ) != LevelData.EMPTY ) {
+                    filled++;
+                }
+            }
+        }
+        
+        bh.consume( filled );
+        
+    }
+    
+    @Benchmark
+    public List<AABB> mergeSolids() {
+        solids.clear();
+        SolidMerger.merge( grid, 0, columns, solids );
+        return solids;
+    }
+    
+}
@@ -0,0 +1,84 @@
+package br.com.davidbuzatto.nonameplat.benchmarks;
+
+import br.com.davidbuzatto.nonameplat.collision.Broadphase;
+import br.com.davidbuzatto.nonameplat.world.InputScript;
+import br.com.davidbuzatto.nonameplat.world.World;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A full simulation step of the world, headless, with the hero running
+ * right and jumping now and then.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class TickBenchmark {
+    
+    @Param( { "0", "64", "240" } )
+    private int enemies;
+    
+    @Param( { "SPATIAL_HASH", "SWEEP_AND_PRUNE" } )
+    private Broadphase.Type broadphase;
+    
+    @Param( { "1", "4" } )
+    private int threads;
+    
+    private String level;
+    private InputScript input;
+    private World world;
+    
+    @Setup( Level.Trial )
+    public void setupTrial() throws IOException {
+        
+        level = LevelGenerator.write( 1024, enemies, 42 );
+        
+        input = new InputScript();
+        for ( int i = 0; i < 1000; i++ ) {
+            input.append( 1, InputScript.RIGHT | InputScript.RUN | InputScript.JUMP );
+            input.append( 90, InputScript.RIGHT | InputScript.RUN );
+        }
+        
+    }
+    
+    @Setup( Level.Iteration )
+    public void setupIteration() {
+        world = new World( level, broadphase, World.DEFAULT_SIMULATION_RATE, threads );
+        world.setInputScript( input );
+    }
+    
+    @TearDown( Level.Iteration )
+    public void tearDownIteration() {
+        world.dispose();
+    }
+    
+    @TearDown( Level.Trial )
+    public void tearDownTrial() throws IOException {
+        LevelGenerator.delete( level );
+    }
+    
+    @Benchmark
+    public long step() {
+        world.step();
+        return world.getTick();
+    }
+    
+}
@@ -0,0 +1,129 @@
+package br.com.davidbuzatto.nonameplat;
+
+import br.com.davidbuzatto.nonameplat.collision.Broadphase;
+import br.com.davidbuzatto.nonameplat.world.InputScript;
+import br.com.davidbuzatto.nonameplat.world.World;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+
+/**
+ * Checks that the simulation does not allocate once it is warmed up.
+ *
+ * Runs a level headless, like HeadlessRunner, and measures the bytes
+ * allocated by every thread (the enemy workers included) while a number
+ * of frames is run after the warm up. Each headless frame is a step of the
+ * world plus the end of a profiler frame. Exits with status 1 when the
+ * average per frame goes over the limit, so it can be run by a build or
+ * before a commit.
+ *
+ * The enemies are only updated by the worker threads when more than one
+ * batch of them is active, which never happens in field1; the
+ * check-allocation target also runs benchmarks/levels/crowd, crowded with
+ * enemies, with a few threads.
+ *
+ * Usage: AllocationCheck [--level=path] [--script=file] [--warmup=n]
+ * [--frames=n] [--limit=bytes per frame] [--broadphase=type]
+ * [--threads=n]
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class AllocationCheck {
+    
+    public static final long DEFAULT_LIMIT = 64;
+    
+    public static void main( String[] args ) throws IOException {
+        
+        System.setProperty( "java.awt.headless", "true" );
+        
+        String level = "resources/levels/field1";
+        Path scriptPath = null;
+        long warmup = 20_000;
+        long frames = 5_000;
+        long limit = DEFAULT_LIMIT;
+        Broadphase.Type broadphaseType = World.DEFAULT_BROADPHASE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        
+        for ( String arg : args ) {
+            
+            int i = arg.indexOf( '=' );
+            String name = i < 0 ? arg : arg.substring( 0, i );
+            String value = i < 0 ? "" : arg.substring( i + 1 );
+            
+            switch ( name ) {
+                case "--level" -> level = value;
+                case "--script" -> scriptPath = Path.of( value );
+                case "--warmup" -> warmup = Long.parseLong( value );
+                case "--frames" -> frames = Long.parseLong( value );
+                case "--limit" -> limit = Long.parseLong( value );
+                case "--broadphase" -> broadphaseType = Broadphase.Type.valueOf( value.toUpperCase() );
+                case "--threads" -> threads = Integer.parseInt( value );
+                default -> {
+                    System.err.println( "unknown option: " + arg );
+                    System.err.println( "usage: AllocationCheck [--level=path] [--script=file] [--warmup=n] [--frames=n] [--limit=bytes] [--broadphase=type] [--threads=n]" );
+                    System.exit( 1 );
+                }
+            }
+            
+        }
+        
+        com.sun.management.ThreadMXBean threadBean = 
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threadBean.setThreadAllocatedMemoryEnabled( true );
+        
+        World world = new World( level, broadphaseType, World.DEFAULT_SIMULATION_RATE, threads );
+        
+        // the script keeps the hero moving, so chunks are streamed and
+        // contacts happen; when it ends the hero just stands
+        if ( scriptPath != null ) {
+            world.setInputScript( InputScript.read( scriptPath ) );
+        }
+        
+        runFrames( world, warmup );
+        
+        long before = allocatedBytes( threadBean );
+        runFrames( world, frames );
+        long allocated = allocatedBytes( threadBean ) - before;
+        
+        long perFrame = allocated / frames;
+        
+        System.out.printf( "frames:       %d (after %d of warm up)%n", frames, warmup );
+        System.out.printf( "allocated:    %d bytes%n", allocated );
+        System.out.printf( "per frame:    %d bytes (limit %d)%n", perFrame, limit );
+        
+        world.dispose();
+        
+        if ( perFrame > limit ) {
+            System.out.println( "FAILED" );
+            System.exit( 1 );
+        }
+        
+        System.out.println( "OK" );
+        
+    }
+    
+    private static void runFrames( World world, long frames ) {
+        for ( long i = 0; i < frames; i++ ) {
+            world.step();
+            world.getProfiler().endFrame();
+        }
+    }
+    
+    /**
+     * Bytes allocated so far by all live threads.
+     */
+    private static long allocatedBytes( com.sun.management.ThreadMXBean threadBean ) {
+        
+        long total = 0;
+        
+        for ( long b : threadBean.getThreadAllocatedBytes( threadBean.getAllThreadIds() ) ) {
+            if ( b > 0 ) {
+                total += b;
+            }
+        }
+        
+        return total;
+        
+    }
+    
+}
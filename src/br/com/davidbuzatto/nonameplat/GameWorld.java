@@ -2,54 +2,81 @@ package br.com.davidbuzatto.nonameplat;
 
 import br.com.davidbuzatto.jsge.collision.CollisionUtils;
 import br.com.davidbuzatto.jsge.collision.aabb.AABB;
-import br.com.davidbuzatto.jsge.collision.aabb.AABBQuadtree;
-import br.com.davidbuzatto.jsge.collision.aabb.AABBQuadtreeNode;
 import br.com.davidbuzatto.jsge.core.Camera2D;
 import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
 import br.com.davidbuzatto.jsge.core.utils.ColorUtils;
 import br.com.davidbuzatto.jsge.geom.Rectangle;
 import br.com.davidbuzatto.jsge.image.Image;
-import br.com.davidbuzatto.jsge.image.ImageUtils;
 import br.com.davidbuzatto.jsge.math.Vector2;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache.Transform;
+import br.com.davidbuzatto.nonameplat.assets.AssetLoader;
+import br.com.davidbuzatto.nonameplat.collision.Broadphase;
+import br.com.davidbuzatto.nonameplat.entities.Entity;
 import br.com.davidbuzatto.nonameplat.entities.characters.BaseEnemy;
 import br.com.davidbuzatto.nonameplat.entities.characters.Hero;
+import br.com.davidbuzatto.nonameplat.entities.effects.Effect;
 import br.com.davidbuzatto.nonameplat.entities.items.Coin;
 import br.com.davidbuzatto.nonameplat.entities.tiles.Tile;
-import br.com.davidbuzatto.nonameplat.utils.Utils;
+import br.com.davidbuzatto.nonameplat.profiling.FrameProfiler;
+import br.com.davidbuzatto.nonameplat.profiling.FrameProfiler.Phase;
+import br.com.davidbuzatto.nonameplat.profiling.ProfilerOverlay;
+import br.com.davidbuzatto.nonameplat.world.InputScript;
+import br.com.davidbuzatto.nonameplat.world.TileLayerRenderer;
+import br.com.davidbuzatto.nonameplat.world.World;
+import br.com.davidbuzatto.nonameplat.world.WorldChunk;
 import java.awt.Color;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Game World.
  * 
+ * Presents a World (the simulation) in a window: samples the input,
+ * follows the hero with the camera and draws.
+ * 
  * @author Prof. Dr. David Buzatto
  */
 public class GameWorld extends EngineFrame {
     
-    public static final double GRAVITY = 1200;
     public static final double BASE_WIDTH = 64;
     public static final boolean SHOW_BOUNDARIES = false;
     public static final boolean SHOW_COLLISION_PROBES = false;
+    public static final double CULLING_MARGIN = BASE_WIDTH;
+    
+    // records the input of the session in the given file, to replay it
+    // later with HeadlessRunner
+    public static final String RECORD_INPUT_PROPERTY = "nonameplat.recordInput";
     
     // statistics
+    private boolean showProfiler = false;
     private boolean showStatistics = false;
     
+    // the statistics texts are rebuilt a few times per second, not every
+    // frame; the panel still allocates new Strings while it is shown, only
+    // less often, and the frames without it don't allocate
+    private static final int TEXT_REFRESH_FRAMES = 15;
+    private int statisticsFrame;
+    private Color statisticsBackground;
+    private String posText;
+    private String prevPosText;
+    private String velText;
+    private String remainingJumpsText;
+    
     public static final Color CP_COLOR1 = ColorUtils.fade( GREEN, 0.7 );
     public static final Color CP_COLOR2 = ColorUtils.fade( RED, 0.7 );
     public static final Color CP_COLOR3 = ColorUtils.fade( BLUE, 0.7 );
     public static final Color CP_COLOR4 = ColorUtils.fade( GOLD, 0.7 );
     
-    private int lines;
-    private int columns;
     private double worldWidth;
     private double worldHeight;
     private double halfScreenWidth;
     private double halfScreenHeight;
     
+    private World world;
     private Hero hero;
     private Hud hud;
     private Camera2D camera;
@@ -57,32 +84,43 @@ public class GameWorld extends EngineFrame {
     private List<BaseEnemy> enemies;
     private List<Coin> coins;
     
-    private Map<Character, Image> tileSkins;
-    private List<Tile> tiles;
+    private TileLayerRenderer tileLayerRenderer;
+    
+    // visibility
+    private double viewX1;
+    private double viewY1;
+    private double viewX2;
+    private double viewY2;
+    private List<Tile> visibleTiles;
+    private List<BaseEnemy> visibleEnemies;
+    private List<Coin> visibleCoins;
     
     private Color backgroundColor;
     private ParallaxEngine parallaxEngine;
     
+    // broadphase overlaps, the rectangles are reused between frames
     private Color aabbOverlapColor;
-    
-    private int qtWidth;
-    private int qtHeight;
-    private int maxTreeDepth;
-    
-    private List<AABB> aabbs;
-    private AABBQuadtree quadtree;
-    private List<Rectangle> overlaps;
+    private Rectangle[] overlaps;
+    private int overlapCount;
+    private Rectangle overlapA;
+    private Rectangle overlapB;
+    private double overlapX;
+    private double overlapY;
+    private double overlapScale;
+    private Broadphase.PairVisitor overlapCollector;
+    
+    private static final String HERO_ICON_PATH = "resources/images/sprites/hero/hero.png";
+    private static final String HEART_PATH = "resources/images/hud/heart.png";
+    private static final String PORTRAIT_PATH = "resources/images/hud/portrait.png";
+    private static final String COIN_PATH = "resources/images/hud/coin.png";
     
     private Image heroIcon;
     
-    // FPS debugging
-    private double timeCount;
-    private boolean setup;
-    private double startX;
-    private boolean startCount;
-    private boolean endCount;
-    private int frameCount;
-    private static final boolean DEBUG_FPS = false;
+    // loads the assets while the loading screen is shown, null after
+    private AssetLoader loader;
+    
+    private FrameProfiler profiler;
+    private ProfilerOverlay profilerOverlay;
     
     public GameWorld() {
         // 896 = 14 columns
@@ -93,8 +131,8 @@ public class GameWorld extends EngineFrame {
     @Override
     public void create() {
         
-        heroIcon = loadImage( "resources/images/sprites/hero/hero.png" );
-        Utils.replaceHeroImageColors( heroIcon );
+        // a single small image, so the window has its icon while loading
+        heroIcon = AssetCache.getShared().acquireImage( HERO_ICON_PATH, Transform.HERO_COLORS );
         setWindowIcon( heroIcon );
         
         //setDefaultFont( loadFont( "resources/fonts/Planes_ValMore.ttf" ) );
@@ -102,18 +140,44 @@ public class GameWorld extends EngineFrame {
         
         halfScreenWidth = getScreenWidth() / 2;
         halfScreenHeight = getScreenHeight() / 2;
+        backgroundColor = new Color( 44, 154, 208 );
         
-        hero = new Hero( 
-            new Vector2(),
-            BLUE
-        );
+        loader = new AssetLoader( AssetCache.getShared(), Runtime.getRuntime().availableProcessors() );
+        World.preload( loader );
+        ParallaxEngine.preload( loader );
+        loader.add( HEART_PATH );
+        loader.add( PORTRAIT_PATH, Transform.HERO_COLORS );
+        loader.add( COIN_PATH );
+        loader.start();
+        
+    }
+    
+    /**
+     * Sets up the level once the assets are loaded: everything acquired
+     * here is already cached.
+     */
+    private void createWorld() {
+        
+        world = new World( "resources/levels/field1" );
+        hero = world.getHero();
+        enemies = world.getEnemies();
+        coins = world.getCoins();
+        worldWidth = world.getWorldWidth();
+        worldHeight = world.getWorldHeight();
+        profiler = world.getProfiler();
+        profilerOverlay = new ProfilerOverlay();
+        
+        String recordPath = System.getProperty( RECORD_INPUT_PROPERTY );
+        if ( recordPath != null ) {
+            recordInput( Path.of( recordPath ) );
+        }
         
         hud = new Hud( 
                 10, 10, 
                 hero, 
-                loadImage( "resources/images/hud/heart.png" ),
-                Utils.replaceHeroImageColors( loadImage( "resources/images/hud/portrait.png" ) ),
-                loadImage( "resources/images/hud/coin.png" )
+                AssetCache.getShared().acquireImage( HEART_PATH, Transform.NONE ),
+                AssetCache.getShared().acquireImage( PORTRAIT_PATH, Transform.HERO_COLORS ),
+                AssetCache.getShared().acquireImage( COIN_PATH, Transform.NONE )
         );
         
         camera = new Camera2D( 
@@ -123,49 +187,43 @@ public class GameWorld extends EngineFrame {
             1.0
         );
         
-        loadTileSkins();
-        
-        processMapData( 
-            """
-            G                                            E
-            G                                            E
-            G                                            E
-            G                                            E
-            G                                            E
-            G                                            E
-            G                e                           E
-            G         IJJJJJJK   L   e    L              E
-            G        Lcccccccc    IJJJJJJK               E
-            G       Lccccccccc                           E
-            G   p  ecccccccccc                           E
-            MBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBN
-            FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF
-            """
-        );
+        tileLayerRenderer = new TileLayerRenderer( world.getChunkManager(), BASE_WIDTH );
         
-        backgroundColor = new Color( 44, 154, 208 );
         parallaxEngine = new ParallaxEngine( worldWidth, worldHeight, getScreenWidth(), getScreenHeight(), 0.1 );
         
-        qtWidth = (int) worldWidth;
-        qtHeight = qtWidth;
-        maxTreeDepth = 5;
-        
+        statisticsBackground = ColorUtils.fade( WHITE, 0.5 );
         aabbOverlapColor = ColorUtils.fade( BLUE, 0.7 );
+        overlaps = new Rectangle[0];
+        overlapA = new Rectangle();
+        overlapB = new Rectangle();
+        overlapCollector = this::collectOverlap;
+        
+        updateCamera();
+        tileLayerRenderer.bakeDirtyChunks();
         
-        initAABBs();
-        quadtree = new AABBQuadtree( aabbs, qtWidth, qtHeight, maxTreeDepth );
-        overlaps = new CopyOnWriteArrayList<>();
+        visibleTiles = new ArrayList<>();
+        visibleEnemies = new ArrayList<>();
+        visibleCoins = new ArrayList<>();
         
     }
     
     @Override
     public void update( double delta ) {
         
-        if ( DEBUG_FPS ) {
-            setupDebugFPS( delta );
+        if ( loader != null ) {
+            if ( loader.isDone() ) {
+                loader.finish();
+                loader = null;
+                createWorld();
+            }
+            return;
         }
         
         if ( isKeyPressed( KEY_F1 ) ) {
+            showProfiler = !showProfiler;
+        }
+        
+        if ( isKeyPressed( KEY_F2 ) ) {
             showStatistics = !showStatistics;
         }
         
@@ -173,14 +231,20 @@ public class GameWorld extends EngineFrame {
             hero.getAABB().active = !hero.getAABB().active;
         }
         
-        hero.update( this, worldWidth, worldHeight, tiles, quadtree, delta );
-        updateEnemies( delta );
-        updateCoins( delta );
+        world.getHeroInput().sample( this );
+        world.update( delta );
         
+        profiler.begin( Phase.HUD );
         hud.update( delta );
+        profiler.end( Phase.HUD );
         
-        quadtree.update();
+        profiler.begin( Phase.CAMERA );
         updateCamera();
+        profiler.end( Phase.CAMERA );
+        
+        profiler.begin( Phase.TILE_BAKING );
+        tileLayerRenderer.bakeDirtyChunks();
+        profiler.end( Phase.TILE_BAKING );
         
     }
     
@@ -188,281 +252,286 @@ public class GameWorld extends EngineFrame {
     public void draw() {
         
         clearBackground( backgroundColor );
+        
+        if ( loader != null ) {
+            drawLoadingScreen();
+            return;
+        }
+        
+        profiler.begin( Phase.PARALLAX );
         parallaxEngine.draw( this, hero );
+        profiler.end( Phase.PARALLAX );
+        
+        profiler.begin( Phase.CULLING );
+        updateVisibleEntities();
+        profiler.end( Phase.CULLING );
         
         beginMode2D( camera );
         
+        profiler.begin( Phase.TILES );
         drawTiles();
+        profiler.end( Phase.TILES );
+        
+        profiler.begin( Phase.ENEMY_DRAW );
         drawEnemies();
+        profiler.end( Phase.ENEMY_DRAW );
+        
+        profiler.begin( Phase.COIN_DRAW );
         drawCoins();
+        profiler.end( Phase.COIN_DRAW );
+        
+        profiler.begin( Phase.HERO_DRAW );
+        drawEffects();
         hero.draw( this );
+        profiler.end( Phase.HERO_DRAW );
         
         endMode2D();
         
+        profiler.begin( Phase.HUD_DRAW );
         hud.draw( this );
+        profiler.end( Phase.HUD_DRAW );
         
         if ( showStatistics ) {
             drawStatistics( 20, 20 );
         }
         
-        if ( DEBUG_FPS ) {
-            drawDebugFps();
+        if ( showProfiler ) {
+            profiler.begin( Phase.PROFILER );
+            profilerOverlay.draw( this, profiler, 20, 20 );
+            profiler.end( Phase.PROFILER );
         }
+        
+        profiler.endFrame();
     
     }
     
-    private void drawEnemies() {
-        for ( BaseEnemy e : enemies ) {
-            e.draw( this );
-        }
+    private void drawLoadingScreen() {
+        
+        double width = getScreenWidth() / 2;
+        double x = halfScreenWidth - width / 2;
+        double y = halfScreenHeight;
+        
+        drawText( "Loading...", x, y - 40, WHITE );
+        fillRectangle( x, y, width * loader.getProgress(), 20, WHITE );
+        drawRectangle( x, y, width, 20, WHITE );
+        
     }
     
-    private void updateEnemies( double delta ) {
-        for ( BaseEnemy e : enemies ) {
-            e.update( worldWidth, worldHeight, tiles, quadtree, delta );
+    /**
+     * Records every simulation step and writes the script when the game
+     * is closed.
+     */
+    private void recordInput( Path path ) {
+        
+        InputScript recorder = new InputScript();
+        world.setInputRecorder( recorder );
+        
+        Runtime.getRuntime().addShutdownHook( new Thread( () -> {
+            try {
+                recorder.write( path );
+            } catch ( IOException exc ) {
+                throw new UncheckedIOException( "Could not write input to " + path, exc );
+            }
+        }));
+        
+    }
+    
+    private void drawEnemies() {
+        for ( int i = 0; i < visibleEnemies.size(); i++ ) {
+            visibleEnemies.get( i ).draw( this );
         }
     }
     
     private void drawCoins() {
-        for ( Coin c : coins ) {
-            c.draw( this );
+        for ( int i = 0; i < visibleCoins.size(); i++ ) {
+            visibleCoins.get( i ).draw( this );
         }
     }
     
-    private void updateCoins( double delta ) {
-        for ( Coin c : coins ) {
-            c.update( delta );
+    private void drawEffects() {
+        List<Effect> effects = world.getEffects();
+        for ( int i = 0; i < effects.size(); i++ ) {
+            effects.get( i ).draw( this );
         }
     }
     
     private void drawTiles() {
-        for ( Tile t : tiles ) {
-            t.draw( this );
+        
+        tileLayerRenderer.draw( this, viewX1, viewX2 );
+        
+        if ( SHOW_BOUNDARIES ) {
+            for ( int i = 0; i < visibleTiles.size(); i++ ) {
+                visibleTiles.get( i ).drawBoundaries( this );
+            }
         }
+        
+    }
+    
+    /**
+     * Collects what the camera can see, plus a margin, so draw only
+     * touches on screen entities. Tiles are drawn from the baked chunk
+     * layers, the grid is only queried to show their boundaries.
+     */
+    private void updateVisibleEntities() {
+        
+        double halfViewWidth = halfScreenWidth / camera.zoom + CULLING_MARGIN;
+        double halfViewHeight = halfScreenHeight / camera.zoom + CULLING_MARGIN;
+        
+        viewX1 = camera.target.x - halfViewWidth;
+        viewY1 = camera.target.y - halfViewHeight;
+        viewX2 = camera.target.x + halfViewWidth;
+        viewY2 = camera.target.y + halfViewHeight;
+        
+        visibleTiles.clear();
+        if ( SHOW_BOUNDARIES ) {
+            world.getTileGrid().query( viewX1, viewY1, viewX2, viewY2, visibleTiles );
+        }
+        
+        visibleEnemies.clear();
+        for ( int i = 0; i < enemies.size(); i++ ) {
+            BaseEnemy e = enemies.get( i );
+            if ( isVisible( e ) ) {
+                visibleEnemies.add( e );
+            }
+        }
+        
+        visibleCoins.clear();
+        for ( int i = 0; i < coins.size(); i++ ) {
+            Coin c = coins.get( i );
+            if ( c.isActive() && isVisible( c ) ) {
+                visibleCoins.add( c );
+            }
+        }
+        
+    }
+    
+    private boolean isVisible( Entity e ) {
+        double x = e.getX();
+        double y = e.getY();
+        return x + e.getWidth() >= viewX1 && x <= viewX2 && 
+               y + e.getHeight() >= viewY1 && y <= viewY2;
     }
     
     private void drawStatistics( int x, int y ) {
         
-        fillRectangle( x - 10, y - 10, 440, 290, ColorUtils.fade( WHITE, 0.5 ) );
+        if ( statisticsFrame++ % TEXT_REFRESH_FRAMES == 0 ) {
+            posText = String.format( "    pos: (%.2f, %.2f)", hero.getX(), hero.getY() );
+            prevPosText = String.format( "prevPos: (%.2f, %.2f)", hero.getPrevX(), hero.getPrevY() );
+            velText = String.format( "    vel: (%.2f, %.2f)", hero.getVelX(), hero.getVelY() );
+            remainingJumpsText = "r jumps: " + hero.getRemainingJumps();
+        }
+        
+        fillRectangle( x - 10, y - 10, 440, 290, statisticsBackground );
         drawFPS( x, y );
-        drawText( "    pos: " + hero.getPos().toString(), x, y += 20, BLACK );
-        drawText( "prevPos: " + hero.getPos().toString(), x, y += 20, BLACK );
-        drawText( "    vel: " + hero.getVel().toString(), x, y += 20, BLACK );
-        drawText( "r jumps: " + hero.getRemainingJumps(), x, y += 20, BLACK );
+        drawText( posText, x, y += 20, BLACK );
+        drawText( prevPosText, x, y += 20, BLACK );
+        drawText( velText, x, y += 20, BLACK );
+        drawText( remainingJumpsText, x, y += 20, BLACK );
         
-        drawText( "Quadtree:", x, y += 20, BLACK );
-        drawQuadTree( x, y += 20, 0.05 );
+        drawText( "Broadphase:", x, y += 20, BLACK );
+        drawBroadphase( x, y += 20, 0.05 );
         
     }
     
     private void updateCamera() {
         
-        if ( hero.getPos().x <= halfScreenWidth ) {
+        double heroX = hero.getRenderX();
+        double heroY = hero.getRenderY();
+        
+        if ( heroX <= halfScreenWidth ) {
             camera.target.x = halfScreenWidth;
-        } else if ( hero.getPos().x >= worldWidth - halfScreenWidth ) {
+        } else if ( heroX >= worldWidth - halfScreenWidth ) {
             camera.target.x = worldWidth - halfScreenWidth;
         } else {
-            camera.target.x = hero.getPos().x;
+            camera.target.x = heroX;
         }
         
-        if ( hero.getPos().y <= halfScreenHeight ) {
+        if ( heroY <= halfScreenHeight ) {
             camera.target.y = halfScreenHeight;
-        } else if ( hero.getPos().y >= worldHeight - halfScreenHeight ) {
+        } else if ( heroY >= worldHeight - halfScreenHeight ) {
             camera.target.y = worldHeight - halfScreenHeight;
         } else {
-            camera.target.y = hero.getPos().y;
+            camera.target.y = heroY;
         }
         
     }
     
-    private void loadTileSkins() {
-        
-        String tilePath = "resources/images/tiles/field/tile%c.png";
+    private void calculateOverlaps( double x, double y, double scale ) {
         
-        tileSkins = new HashMap<>();
-        for ( char c = 'A'; c <= 'N'; c++ ) {
-            tileSkins.put( c, ImageUtils.loadImage( String.format( tilePath, c ) ) );
-        }
-        
-    }
-    
-    private void processMapData( String mapData ) {
-        
-        int currentLine = 0;
-        int currentColumn = 0;
-        int maxColumn = 0;
-        
-        tiles = new ArrayList<>();
-        enemies = new ArrayList<>();
-        coins = new ArrayList<>();
-        
-        for ( char c : mapData.toCharArray() ) {
-            if ( c == '\n' ) {
-                currentLine++;
-                currentColumn = 0;
-            } else {
-                
-                if ( c >= 'A' && c <= 'N' ) {
-                    tiles.add( 
-                        new Tile( 
-                            new Vector2( currentColumn * BASE_WIDTH, currentLine * BASE_WIDTH ), 
-                            ORANGE,
-                            tileSkins.get( c )
-                        )
-                    );
-                } else {
-                    
-                    switch ( c ) {
-                        case 'p':
-                            hero.getPos().x = currentColumn * BASE_WIDTH;
-                            hero.getPos().y = currentLine * BASE_WIDTH;
-                            hero.updateCollisionProbes();
-                            break;
-                        case 'e':
-                            enemies.add( 
-                                new BaseEnemy( 
-                                    new Vector2( currentColumn * BASE_WIDTH, currentLine * BASE_WIDTH ), 
-                                    RED
-                                )
-                            );
-                            break;
-                        case 'c':
-                            coins.add( 
-                                new Coin( 
-                                    new Vector2( currentColumn * BASE_WIDTH + BASE_WIDTH / 2 - 17, currentLine * BASE_WIDTH + BASE_WIDTH / 2 - 17 ), 
-                                    RED
-                                )
-                            );
-                            break;
-                        default:
-                            if ( c != ' ' ) {
-                                tiles.add( new Tile( new Vector2( currentColumn * BASE_WIDTH, currentLine * BASE_WIDTH ) ) );
-                            }
-                            break;
-                    }
-                    
-                }
-                
-                currentColumn++;
-                
-                if ( maxColumn < currentColumn ) {
-                    maxColumn = currentColumn;
-                }
-                
-            }
-        }
+        overlapCount = 0;
+        overlapX = x;
+        overlapY = y;
+        overlapScale = scale;
         
-        lines = currentLine;
-        columns = maxColumn;
-        worldWidth = columns * BASE_WIDTH;
-        worldHeight = lines * BASE_WIDTH;
+        world.getBroadphase().forEachPair( overlapCollector );
         
     }
     
-    private void initAABBs() {
+    private void collectOverlap( AABB a, AABB b ) {
         
-        aabbs = new ArrayList<>();
-        aabbs.add( hero.getAABB() );
+        setScaled( overlapA, a );
+        setScaled( overlapB, b );
         
-        for ( BaseEnemy e : enemies ) {
-            aabbs.add( e.getAABB() );
-        }
-        
-        for ( Coin c : coins ) {
-            aabbs.add( c.getAABB() );
-        }
-        
-        for ( Tile t : tiles ) {
-            aabbs.add( t.getAABB() );
-        }
-        
-    }
-    
-    private void calculateOverlaps( AABBQuadtreeNode node, double x, double y, double scale ) {
-        
-        if ( node.depth < quadtree.getMaxDepth() ) {
-            
-            int size = node.aabbs.size();
+        if ( CollisionUtils.checkCollisionRectangles( overlapA, overlapB ) ) {
             
-            for ( int i = 0; i < size; i++ ) {
-                for ( int j = i+1; j < size; j++ ) {
-                    try {
-                        AABB a = node.aabbs.get( i );
-                        AABB b = node.aabbs.get( j );
-                        if ( a.type != AABB.Type.STATIC || b.type != AABB.Type.STATIC ) {
-                            Rectangle ra = new Rectangle( a.x1 * scale, a.y1 * scale, ( a.x2 - a.x1 ) * scale, ( a.y2 - a.y1 ) * scale );
-                            Rectangle rb = new Rectangle( b.x1 * scale, b.y1 * scale, ( b.x2 - b.x1 ) * scale, ( b.y2 - b.y1 ) * scale );
-                            if ( CollisionUtils.checkCollisionRectangles( ra, rb ) ) {
-                                Rectangle ri = CollisionUtils.getCollisionRectangle( ra, rb );
-                                ri.x += x;
-                                ri.y += y;
-                                overlaps.add( ri );
-                            }
-                        }
-                    } catch ( IndexOutOfBoundsException | NullPointerException exc ) {
-                    }
+            if ( overlapCount == overlaps.length ) {
+                Rectangle[] newOverlaps = new Rectangle[Math.max( overlapCount * 2, 16 )];
+                System.arraycopy( overlaps, 0, newOverlaps, 0, overlapCount );
+                for ( int i = overlapCount; i < newOverlaps.length; i++ ) {
+                    newOverlaps[i] = new Rectangle();
                 }
+                overlaps = newOverlaps;
             }
             
-            calculateOverlaps( node.nw, x, y, scale );
-            calculateOverlaps( node.ne, x, y, scale );
-            calculateOverlaps( node.sw, x, y, scale );
-            calculateOverlaps( node.se, x, y, scale );
+            // the intersection, computed in place
+            Rectangle ri = overlaps[overlapCount++];
+            ri.x = Math.max( overlapA.x, overlapB.x );
+            ri.y = Math.max( overlapA.y, overlapB.y );
+            ri.width = Math.min( overlapA.x + overlapA.width, overlapB.x + overlapB.width ) - ri.x;
+            ri.height = Math.min( overlapA.y + overlapA.height, overlapB.y + overlapB.height ) - ri.y;
+            ri.x += overlapX;
+            ri.y += overlapY;
             
         }
         
     }
     
-    private void drawQuadTree( double x, double y, double scale ) {
-        
-        overlaps.clear();
-        calculateOverlaps( quadtree.getRoot(), x, y, scale );
-        
-        quadtree.draw( this, x, y, scale );
-        
-        for ( Rectangle r : overlaps ) {
-            r.fill( this, aabbOverlapColor );
-        }
-        
+    private void setScaled( Rectangle r, AABB a ) {
+        r.x = a.x1 * overlapScale;
+        r.y = a.y1 * overlapScale;
+        r.width = ( a.x2 - a.x1 ) * overlapScale;
+        r.height = ( a.y2 - a.y1 ) * overlapScale;
     }
     
-    private void setupDebugFPS( double delta ) {
-        
-        if ( !setup ) {
-            startX = hero.getPos().x;
-            setup = true;
-        }
-        
-        if ( hero.getVel().x > 0 && !endCount ) {
-            startCount = true;
-        }
+    private void drawBroadphase( double x, double y, double scale ) {
         
-        if ( hero.getPos().x > startX + 300 && !endCount ) {
-            endCount = true;
-            startCount = false;
-        }
+        calculateOverlaps( x, y, scale );
         
-        if ( startCount ) {
-            timeCount += delta;
-            frameCount++;
+        List<WorldChunk> loadedChunks = world.getChunkManager().getLoadedChunks();
+        for ( int i = 0; i < loadedChunks.size(); i++ ) {
+            List<AABB> solids = loadedChunks.get( i ).getSolids();
+            for ( int j = 0; j < solids.size(); j++ ) {
+                AABB a = solids.get( j );
+                drawRectangle( x + a.x1 * scale, y + a.y1 * scale, ( a.x2 - a.x1 ) * scale, ( a.y2 - a.y1 ) * scale, DARKGRAY );
+            }
         }
         
-    }
-    
-    private void drawDebugFps() {
-        
-        Vector2 v = camera.getWorldToScreen( startX, 0 );
-        drawLine( v.x, v.y, v.x, getScreenHeight(), WHITE );
-        drawLine( v.x + Hero.WALK_SPEED, v.y, v.x + Hero.WALK_SPEED, getScreenHeight(), WHITE );
+        world.getBroadphase().draw( this, x, y, scale, BLACK );
         
-        if ( endCount ) {
-            drawText( String.format( "time: %.2f(s)", timeCount ), 10, getScreenHeight() - 40, 20, WHITE );
-            drawText( String.format( "frames: %d", frameCount ), 10, getScreenHeight() - 20, 20, WHITE );
+        for ( int i = 0; i < overlapCount; i++ ) {
+            overlaps[i].fill( this, aabbOverlapColor );
         }
         
     }
     
+    /**
+     * The broadphase can be chosen by name in the first argument (or with
+     * -Dnonameplat.broadphase): QUADTREE, SPATIAL_HASH or SWEEP_AND_PRUNE.
+     */
     public static void main( String[] args ) {
+        if ( args.length > 0 ) {
+            System.setProperty( World.BROADPHASE_PROPERTY, args[0] );
+        }
         new GameWorld();
     }
     
@@ -0,0 +1,115 @@
+package br.com.davidbuzatto.nonameplat;
+
+import br.com.davidbuzatto.nonameplat.assets.AssetCache;
+import br.com.davidbuzatto.nonameplat.assets.AssetLoader;
+import br.com.davidbuzatto.nonameplat.collision.Broadphase;
+import br.com.davidbuzatto.nonameplat.world.InputScript;
+import br.com.davidbuzatto.nonameplat.world.World;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Runs a level without a window, as fast as the CPU allows.
+ *
+ * The hero follows an input script (written by hand or recorded while
+ * playing with -Dnonameplat.recordInput=file), or stands still when no
+ * script is given. At the end the speed and a hash of the final state are
+ * printed, so two runs can be compared.
+ *
+ * Usage: HeadlessRunner [--level=path] [--ticks=n] [--script=file]
+ * [--broadphase=type] [--rate=steps per second] [--threads=n]
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class HeadlessRunner {
+
+    /**
+     * Runs the world for the given number of steps.
+     *
+     * @return the elapsed time, in nanoseconds.
+     */
+    public static long run( World world, long ticks ) {
+
+        long start = System.nanoTime();
+
+        for ( long i = 0; i < ticks; i++ ) {
+            world.step();
+        }
+
+        return System.nanoTime() - start;
+
+    }
+
+    public static void main( String[] args ) throws IOException {
+
+        System.setProperty( "java.awt.headless", "true" );
+
+        String level = "resources/levels/field1";
+        long ticks = -1;
+        Path scriptPath = null;
+        Broadphase.Type broadphaseType = World.DEFAULT_BROADPHASE;
+        int rate = World.DEFAULT_SIMULATION_RATE;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for ( String arg : args ) {
+
+            int i = arg.indexOf( '=' );
+            String name = i < 0 ? arg : arg.substring( 0, i );
+            String value = i < 0 ? "" : arg.substring( i + 1 );
+
+            switch ( name ) {
+                case "--level" -> level = value;
+                case "--ticks" -> ticks = Long.parseLong( value );
+                case "--script" -> scriptPath = Path.of( value );
+                case "--broadphase" -> broadphaseType = Broadphase.Type.valueOf( value.toUpperCase() );
+                case "--rate" -> rate = Integer.parseInt( value );
+                case "--threads" -> threads = Integer.parseInt( value );
+                default -> {
+                    System.err.println( "unknown option: " + arg );
+                    System.err.println( "usage: HeadlessRunner [--level=path] [--ticks=n] [--script=file] [--broadphase=type] [--rate=n] [--threads=n]" );
+                    System.exit( 1 );
+                }
+            }
+
+        }
+
+        // the same parallel cold start as the game
+        AssetLoader loader = new AssetLoader( AssetCache.getShared(), threads );
+        World.preload( loader );
+        loader.start();
+        loader.finish();
+
+        World world = new World( level, broadphaseType, rate, threads );
+
+        if ( scriptPath != null ) {
+            InputScript script = InputScript.read( scriptPath );
+            world.setInputScript( script );
+            if ( ticks < 0 ) {
+                ticks = script.getTicks();
+            }
+        }
+
+        if ( ticks < 0 ) {
+            ticks = rate * 60L;
+        }
+
+        long elapsed = run( world, ticks );
+        double seconds = elapsed / 1e9;
+
+        System.out.printf( "loading:    %s%n", loader );
+        System.out.printf( "ticks:      %d (%.1f s of game time)%n", ticks, ticks * world.getStepTime() );
+        System.out.printf( "elapsed:    %.3f s%n", seconds );
+        System.out.printf( "ticks/s:    %.0f%n", ticks / seconds );
+        System.out.printf( "hero:       pos (%.2f, %.2f), hp %d, coins %d%n", world.getHero().getX(), world.getHero().getY(), world.getHero().getHp(), world.getHero().getCoins() );
+        System.out.printf( "entities:   %d alive, %d handle slots%n", world.getRegistry().size(), world.getRegistry().getUsed() );
+        System.out.printf( "pools:      %s%n", world.getEnemyPool() );
+        System.out.printf( "            %s%n", world.getCoinPool() );
+        System.out.printf( "            %s%n", world.getDoubleJumpDustPool() );
+        System.out.printf( "state hash: %016x%n", world.stateHash() );
+
+        world.dispose();
+        System.out.printf( "assets:     %s, %d left after dispose%n", AssetCache.getShared(), AssetCache.getShared().size() );
+
+    }
+
+}
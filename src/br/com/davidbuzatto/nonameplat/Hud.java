@@ -19,6 +19,12 @@ public class Hud {
     private Image portraitImage;
     private Image coinImage;
     
+    // texts are only rebuilt when the values change
+    private int coins;
+    private int lives;
+    private String coinsText;
+    private String livesText;
+    
     public Hud( double x, double y, Hero hero, Image heartImage, Image portraitImage, Image coinImage ) {
         this.pos = new Vector2( x, y );
         this.hero = hero;
@@ -26,10 +32,23 @@ public class Hud {
         this.heartImageEmpty = heartImage.copyColorGrayscale();
         this.portraitImage = portraitImage;
         this.coinImage = coinImage;
+        this.coins = -1;
+        this.lives = -1;
+        update( 0 );
     }
     
     public void update( double delta ) {
         
+        if ( hero.getCoins() != coins ) {
+            coins = hero.getCoins();
+            coinsText = String.valueOf( coins );
+        }
+        
+        if ( hero.getLives() != lives ) {
+            lives = hero.getLives();
+            livesText = String.valueOf( lives );
+        }
+        
     }
     
     public void draw( EngineFrame engine ) {
@@ -49,14 +68,14 @@ public class Hud {
         engine.drawImage( coinImage, pos.x + 3, y );
         engine.drawText( "x", pos.x + coinImage.getHeight() + margin + 6, y + 2, EngineFrame.BLACK );
         engine.drawText( "x", pos.x + coinImage.getHeight() + margin + 4, y, EngineFrame.WHITE );
-        engine.drawText( String.valueOf( hero.getCoins() ), pos.x + coinImage.getHeight() + margin + 24, y + 3, EngineFrame.BLACK );
-        engine.drawText( String.valueOf( hero.getCoins() ), pos.x + coinImage.getHeight() + margin + 22, y + 1, EngineFrame.WHITE );
+        engine.drawText( coinsText, pos.x + coinImage.getHeight() + margin + 24, y + 3, EngineFrame.BLACK );
+        engine.drawText( coinsText, pos.x + coinImage.getHeight() + margin + 22, y + 1, EngineFrame.WHITE );
         
         engine.drawImage( portraitImage, pos.x, engine.getScreenHeight() - pos.x - portraitImage.getHeight() );
         engine.drawText( "x", pos.x + portraitImage.getWidth() + margin + 2, engine.getScreenHeight() - pos.x - portraitImage.getHeight() / 2, EngineFrame.BLACK );
         engine.drawText( "x", pos.x + portraitImage.getWidth() + margin, engine.getScreenHeight() - pos.x - portraitImage.getHeight() / 2 - 2, EngineFrame.WHITE );
-        engine.drawText( String.valueOf( hero.getLives() ), pos.x + portraitImage.getWidth() + margin + 20, engine.getScreenHeight() - pos.x - portraitImage.getHeight() / 2 + 1, EngineFrame.BLACK );
-        engine.drawText( String.valueOf( hero.getLives() ), pos.x + portraitImage.getWidth() + margin + 18, engine.getScreenHeight() - pos.x - portraitImage.getHeight() / 2 - 1, EngineFrame.WHITE );
+        engine.drawText( livesText, pos.x + portraitImage.getWidth() + margin + 20, engine.getScreenHeight() - pos.x - portraitImage.getHeight() / 2 + 1, EngineFrame.BLACK );
+        engine.drawText( livesText, pos.x + portraitImage.getWidth() + margin + 18, engine.getScreenHeight() - pos.x - portraitImage.getHeight() / 2 - 1, EngineFrame.WHITE );
         
     }
     
@@ -2,7 +2,9 @@ package br.com.davidbuzatto.nonameplat;
 
 import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
 import br.com.davidbuzatto.jsge.image.Image;
-import br.com.davidbuzatto.jsge.image.ImageUtils;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache.Transform;
+import br.com.davidbuzatto.nonameplat.assets.AssetLoader;
 import br.com.davidbuzatto.nonameplat.entities.characters.Hero;
 
 /**
@@ -11,6 +13,17 @@ import br.com.davidbuzatto.nonameplat.entities.characters.Hero;
  * @author Prof. Dr. David Buzatto
  */
 public class ParallaxEngine {
+    
+    // from the farthest layer to the nearest
+    private static final String[] LAYER_PATHS = {
+        "resources/images/background/field/7.png",
+        "resources/images/background/field/6.png",
+        "resources/images/background/field/5.png",
+        "resources/images/background/field/4.png",
+        "resources/images/background/field/3.png",
+        "resources/images/background/field/2.png",
+        "resources/images/background/field/1.png"
+    };
         
     private final Image[] images;
     private final double worldWidth;
@@ -26,15 +39,10 @@ public class ParallaxEngine {
     
     public ParallaxEngine( double worldWidth, double worldHeight, double screenWidth, double screenHeight, double baseLayerSpeed ) {
         
-        this.images = new Image[]{
-            ImageUtils.loadImage( "resources/images/background/field/7.png" ),
-            ImageUtils.loadImage( "resources/images/background/field/6.png" ),
-            ImageUtils.loadImage( "resources/images/background/field/5.png" ),
-            ImageUtils.loadImage( "resources/images/background/field/4.png" ),
-            ImageUtils.loadImage( "resources/images/background/field/3.png" ),
-            ImageUtils.loadImage( "resources/images/background/field/2.png" ),
-            ImageUtils.loadImage( "resources/images/background/field/1.png" )
-        };
+        this.images = new Image[LAYER_PATHS.length];
+        for ( int i = 0; i < LAYER_PATHS.length; i++ ) {
+            this.images[i] = AssetCache.getShared().acquireImage( LAYER_PATHS[i], Transform.NONE );
+        }
         
         this.worldWidth = worldWidth;
         this.worldHeight = worldHeight;
@@ -49,12 +57,30 @@ public class ParallaxEngine {
 
     }
 
+    /**
+     * Adds the images of the layers to a loader.
+     */
+    public static void preload( AssetLoader loader ) {
+        for ( String path : LAYER_PATHS ) {
+            loader.add( path );
+        }
+    }
+    
+    /**
+     * Releases the images of the layers.
+     */
+    public void dispose() {
+        for ( String path : LAYER_PATHS ) {
+            AssetCache.getShared().release( path, Transform.NONE );
+        }
+    }
+
     public void draw( EngineFrame e, Hero hero ) {
         
         for ( int i = 0; i < images.length; i++ ) {
             
-            double x = hero.getPos().x;
-            double y = hero.getPos().y;
+            double x = hero.getRenderX();
+            double y = hero.getRenderY();
             
             if ( x <= halfScreenWidth ) {
                 x = halfScreenWidth;
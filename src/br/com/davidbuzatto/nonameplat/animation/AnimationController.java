@@ -0,0 +1,179 @@
+package br.com.davidbuzatto.nonameplat.animation;
+
+import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
+import br.com.davidbuzatto.nonameplat.animation.AnimationSet.Clip;
+import br.com.davidbuzatto.nonameplat.animation.AnimationSet.State;
+import br.com.davidbuzatto.nonameplat.animation.AnimationSet.Transition;
+import java.util.List;
+
+/**
+ * Plays an AnimationSet for a character. The character sets the flags and
+ * fires the triggers of the set, the controller moves between the states
+ * and advances only the clip of the current state (and its overlay). The
+ * frames are picked for the side the character looks at when drawing, so
+ * looking to the other side doesn't need another animation.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class AnimationController {
+
+    private final AnimationSet set;
+
+    private State state;
+    private long flags;
+
+    // the clock of the current clip, as in FrameByFrameAnimation
+    private int frame;
+    private double time;
+    private boolean finished;
+
+    private int overlayFrame;
+    private double overlayTime;
+
+    // how far ahead of the shared clocks this character is, in seconds
+    private double offset;
+
+    public AnimationController( AnimationSet set ) {
+        this.set = set;
+        reset();
+    }
+
+    /**
+     * Goes back to the initial state, clearing the flags.
+     */
+    public void reset() {
+        flags = 0;
+        enter( set.getInitialState() );
+    }
+
+    /**
+     * @param offset how far ahead of the other characters the shared
+     * clips of this one play, in seconds, so they don't all move in
+     * lockstep. Clips with a clock of their own are not changed.
+     */
+    public void setOffset( double offset ) {
+        this.offset = offset;
+    }
+
+    public void setFlag( int flag, boolean value ) {
+        if ( value ) {
+            flags |= 1L << flag;
+        } else {
+            flags &= ~( 1L << flag );
+        }
+    }
+
+    /**
+     * Fires a trigger, seen by the transitions of the next update.
+     */
+    public void fire( int trigger ) {
+        flags |= 1L << trigger;
+    }
+
+    /**
+     * Takes the first transition that matches, if any, and advances the
+     * clip of the current state.
+     */
+    public void update( double delta ) {
+
+        List<Transition> transitions = state.getTransitions();
+        for ( int i = 0; i < transitions.size(); i++ ) {
+            Transition t = transitions.get( i );
+            if ( t.isAny() && state.isLocked() ) {
+                continue;
+            }
+            if ( t.matches( flags, finished ) ) {
+                if ( !t.isAny() || t.getTo() != state ) {
+                    enter( t.getTo() );
+                }
+                break;
+            }
+        }
+
+        flags &= ~set.getTriggers();
+
+        Clip clip = state.getClip();
+        if ( clip.getTimeline() == null && !finished ) {
+            time += delta;
+            while ( time >= clip.getTimeToNextFrame() ) {
+                time -= clip.getTimeToNextFrame();
+                frame++;
+                if ( frame >= clip.getFrameCount() ) {
+                    if ( clip.isLoop() ) {
+                        frame = 0;
+                    } else {
+                        frame = clip.getFrameCount() - 1;
+                        finished = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        Clip overlay = state.getOverlay();
+        if ( overlay != null && overlay.getTimeline() == null ) {
+            overlayTime += delta;
+            while ( overlayTime >= overlay.getTimeToNextFrame() ) {
+                overlayTime -= overlay.getTimeToNextFrame();
+                overlayFrame = ( overlayFrame + 1 ) % overlay.getFrameCount();
+            }
+        }
+
+    }
+
+    private void enter( State state ) {
+        this.state = state;
+        frame = 0;
+        time = 0;
+        finished = false;
+        overlayFrame = 0;
+        overlayTime = 0;
+    }
+
+    /**
+     * Draws the overlay of the current state, if any, and then its clip.
+     *
+     * @param lookingLeft where the character looks at.
+     */
+    public void draw( EngineFrame e, double x, double y, boolean lookingLeft ) {
+
+        boolean mirrored = lookingLeft != set.isFacingLeft();
+
+        Clip overlay = state.getOverlay();
+        if ( overlay != null ) {
+            overlay.getFrame( frameIndex( overlay, overlayFrame ), mirrored ).draw( e, x, y );
+        }
+
+        Clip clip = state.getClip();
+        clip.getFrame( frameIndex( clip, frame ), mirrored ).draw( e, x, y );
+
+    }
+
+    private int frameIndex( Clip clip, int frame ) {
+        return clip.getTimeline() == null ? frame : clip.getTimeline().getFrameIndex( offset );
+    }
+
+    /**
+     * @return the index of the current state in the set.
+     */
+    public int getState() {
+        return state.getIndex();
+    }
+
+    public String getStateName() {
+        return state.getName();
+    }
+
+    /**
+     * @return if the clip of the current state played to its last frame.
+     * Looping clips never finish.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public AnimationSet getSet() {
+        return set;
+    }
+
+}
@@ -0,0 +1,535 @@
+package br.com.davidbuzatto.nonameplat.animation;
+
+import br.com.davidbuzatto.jsge.animation.frame.SpriteMapAnimationFrame;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache;
+import br.com.davidbuzatto.nonameplat.assets.AssetLoader;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache.Transform;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The animations of a kind of character: its clips, the states that show
+ * them and the transitions between the states, read from a descriptor
+ * file. A set is shared by every character of the kind, each one playing
+ * it through an AnimationController.
+ *
+ * The descriptor has one declaration per line ("#" starts a comment):
+ *
+ * <pre>
+ * sheet &lt;directory&gt; &lt;frame width&gt; &lt;frame height&gt; &lt;transform&gt;
+ * facing left|right
+ * flag &lt;name&gt;...
+ * trigger &lt;name&gt;...
+ * clip &lt;name&gt; &lt;image&gt; &lt;time to next frame&gt; loop|once [shared] [&lt;transform&gt;]
+ * state &lt;name&gt; &lt;clip&gt; [overlay &lt;clip&gt;] [locked]
+ * transition &lt;from&gt;|* &lt;to&gt; always|finished|[!]&lt;flag&gt; [&amp; [!]&lt;flag&gt;]...
+ * </pre>
+ *
+ * Flags are set by the character and keep their value, triggers are fired
+ * and cleared after the next update. The first state is the initial one.
+ * Transitions are checked in the order they were declared and the first
+ * one that matches is taken. A "*" transition that matches to the state
+ * that is already playing keeps it playing, and "*" transitions are
+ * ignored by locked states, that only leave through their own
+ * transitions. Shared clips are looping clips played by a timeline of the
+ * world instead of by each character.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class AnimationSet {
+
+    // flags are kept in a long by the controllers
+    private static final int MAX_FLAGS = 64;
+
+    public static class Clip {
+
+        private final String name;
+        private final String path;
+        private final Transform transform;
+        private final double timeToNextFrame;
+        private final boolean loop;
+        private final List<SpriteMapAnimationFrame> frames;
+        private final List<SpriteMapAnimationFrame> mirroredFrames;
+        private final AnimationTimeline timeline;
+
+        private Clip( String name, String path, Transform transform, double frameWidth, double frameHeight,
+                double timeToNextFrame, boolean loop, AnimationTimeline timeline ) {
+            this.name = name;
+            this.path = path;
+            this.transform = transform;
+            this.timeToNextFrame = timeToNextFrame;
+            this.loop = loop;
+            this.frames = AssetCache.getShared().acquireFrames( path, transform, frameWidth, frameHeight );
+            this.mirroredFrames = AssetCache.getShared().acquireFrames( path, transform.flipped(), frameWidth, frameHeight );
+            this.timeline = timeline;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getTimeToNextFrame() {
+            return timeToNextFrame;
+        }
+
+        public boolean isLoop() {
+            return loop;
+        }
+
+        /**
+         * @return the timeline that plays the clip, or null if every
+         * character plays it by itself.
+         */
+        public AnimationTimeline getTimeline() {
+            return timeline;
+        }
+
+        public int getFrameCount() {
+            return frames.size();
+        }
+
+        public SpriteMapAnimationFrame getFrame( int index, boolean mirrored ) {
+            return mirrored ? mirroredFrames.get( index ) : frames.get( index );
+        }
+
+    }
+
+    public static class State {
+
+        private final int index;
+        private final String name;
+        private final Clip clip;
+        private final Clip overlay;
+        private final boolean locked;
+        private final List<Transition> transitions;
+
+        private State( int index, String name, Clip clip, Clip overlay, boolean locked ) {
+            this.index = index;
+            this.name = name;
+            this.clip = clip;
+            this.overlay = overlay;
+            this.locked = locked;
+            this.transitions = new ArrayList<>();
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Clip getClip() {
+            return clip;
+        }
+
+        /**
+         * @return the clip drawn behind the main one, or null.
+         */
+        public Clip getOverlay() {
+            return overlay;
+        }
+
+        public boolean isLocked() {
+            return locked;
+        }
+
+        /**
+         * @return the transitions that may leave this state, in the order
+         * they are checked.
+         */
+        List<Transition> getTransitions() {
+            return transitions;
+        }
+
+    }
+
+    public static class Transition {
+
+        private final State to;
+        private final boolean any;
+        private final long required;
+        private final long forbidden;
+        private final boolean finished;
+
+        private Transition( State to, boolean any, long required, long forbidden, boolean finished ) {
+            this.to = to;
+            this.any = any;
+            this.required = required;
+            this.forbidden = forbidden;
+            this.finished = finished;
+        }
+
+        boolean matches( long flags, boolean clipFinished ) {
+            return ( flags & required ) == required &&
+                   ( flags & forbidden ) == 0 &&
+                   ( !finished || clipFinished );
+        }
+
+        public State getTo() {
+            return to;
+        }
+
+        /**
+         * @return if the transition was declared for any state.
+         */
+        public boolean isAny() {
+            return any;
+        }
+
+    }
+
+    private final String path;
+    private final List<String> flags;
+    private final List<Clip> clips;
+    private final List<State> states;
+    private long triggers;
+    private boolean facingLeft;
+
+    private AnimationSet( String path ) {
+        this.path = path;
+        this.flags = new ArrayList<>();
+        this.clips = new ArrayList<>();
+        this.states = new ArrayList<>();
+    }
+
+    /**
+     * Reads a descriptor, acquiring the frames of its clips from the asset
+     * cache and the timelines of its shared clips from the timelines.
+     */
+    public static AnimationSet read( Path path, AnimationTimelines timelines ) throws IOException {
+
+        AnimationSet set = new AnimationSet( path.toString() );
+        List<String> lines = Files.readAllLines( path, StandardCharsets.UTF_8 );
+
+        String directory = "";
+        double frameWidth = 0;
+        double frameHeight = 0;
+        Transform transform = Transform.NONE;
+
+        // transitions may name states declared after them
+        List<String[]> transitions = new ArrayList<>();
+        List<Integer> transitionLines = new ArrayList<>();
+
+        for ( int i = 0; i < lines.size(); i++ ) {
+
+            String line = uncomment( lines.get( i ) );
+            if ( line.isEmpty() ) {
+                continue;
+            }
+
+            String[] parts = line.split( "\\s+" );
+            String where = path + ":" + ( i + 1 ) + ": ";
+
+            try {
+
+                switch ( parts[0] ) {
+
+                    case "sheet" -> {
+                        expect( parts, 5, where );
+                        directory = parts[1];
+                        frameWidth = Double.parseDouble( parts[2] );
+                        frameHeight = Double.parseDouble( parts[3] );
+                        transform = Transform.valueOf( parts[4] );
+                    }
+
+                    case "facing" -> {
+                        expect( parts, 2, where );
+                        set.facingLeft = parts[1].equals( "left" );
+                    }
+
+                    case "flag", "trigger" -> {
+                        for ( int j = 1; j < parts.length; j++ ) {
+                            if ( set.flags.contains( parts[j] ) ) {
+                                throw new IOException( where + "duplicated flag " + parts[j] );
+                            }
+                            if ( set.flags.size() == MAX_FLAGS ) {
+                                throw new IOException( where + "more than " + MAX_FLAGS + " flags" );
+                            }
+                            if ( parts[0].equals( "trigger" ) ) {
+                                set.triggers |= 1L << set.flags.size();
+                            }
+                            set.flags.add( parts[j] );
+                        }
+                    }
+
+                    case "clip" -> {
+
+                        expect( parts, 5, where );
+                        if ( set.findClip( parts[1] ) != null ) {
+                            throw new IOException( where + "duplicated clip " + parts[1] );
+                        }
+
+                        boolean loop = parts[4].equals( "loop" );
+                        boolean shared = false;
+                        Transform clipTransform = transform;
+                        for ( int j = 5; j < parts.length; j++ ) {
+                            if ( parts[j].equals( "shared" ) ) {
+                                shared = true;
+                            } else {
+                                clipTransform = Transform.valueOf( parts[j] );
+                            }
+                        }
+                        if ( shared && !loop ) {
+                            throw new IOException( where + "only looping clips can be shared" );
+                        }
+
+                        String clipPath = directory + parts[2];
+                        double timeToNextFrame = Double.parseDouble( parts[3] );
+                        AnimationTimeline timeline = shared ?
+                                timelines.get( clipPath, clipTransform, frameWidth, frameHeight, timeToNextFrame ) : null;
+
+                        set.clips.add( new Clip( parts[1], clipPath, clipTransform, frameWidth, frameHeight,
+                                timeToNextFrame, loop, timeline ) );
+
+                    }
+
+                    case "state" -> {
+
+                        expect( parts, 3, where );
+                        if ( set.findState( parts[1] ) != null ) {
+                            throw new IOException( where + "duplicated state " + parts[1] );
+                        }
+
+                        Clip overlay = null;
+                        boolean locked = false;
+                        for ( int j = 3; j < parts.length; j++ ) {
+                            if ( parts[j].equals( "locked" ) ) {
+                                locked = true;
+                            } else if ( parts[j].equals( "overlay" ) && j + 1 < parts.length ) {
+                                overlay = set.clip( parts[++j], where );
+                            } else {
+                                throw new IOException( where + "unknown state option " + parts[j] );
+                            }
+                        }
+
+                        set.states.add( new State( set.states.size(), parts[1], set.clip( parts[2], where ), overlay, locked ) );
+
+                    }
+
+                    case "transition" -> {
+                        expect( parts, 4, where );
+                        transitions.add( parts );
+                        transitionLines.add( i + 1 );
+                    }
+
+                    default -> throw new IOException( where + "unknown declaration " + parts[0] );
+
+                }
+
+            } catch ( IllegalArgumentException exc ) {
+                throw new IOException( where + "invalid value in " + line, exc );
+            }
+
+        }
+
+        if ( set.states.isEmpty() ) {
+            throw new IOException( path + ": no states" );
+        }
+
+        for ( int i = 0; i < transitions.size(); i++ ) {
+            set.addTransition( transitions.get( i ), path + ":" + transitionLines.get( i ) + ": " );
+        }
+
+        return set;
+
+    }
+
+    /**
+     * Adds the images of the clips of a descriptor to a loader, with the
+     * transforms the set will ask for, without reading the rest of it.
+     */
+    public static void preload( Path path, AssetLoader loader ) throws IOException {
+
+        List<String> lines = Files.readAllLines( path, StandardCharsets.UTF_8 );
+        String directory = "";
+        Transform transform = Transform.NONE;
+
+        try {
+
+            for ( String line : lines ) {
+
+                String[] parts = uncomment( line ).split( "\\s+" );
+
+                if ( parts[0].equals( "sheet" ) && parts.length >= 5 ) {
+                    directory = parts[1];
+                    transform = Transform.valueOf( parts[4] );
+                } else if ( parts[0].equals( "clip" ) && parts.length >= 5 ) {
+                    Transform clipTransform = transform;
+                    for ( int j = 5; j < parts.length; j++ ) {
+                        if ( !parts[j].equals( "shared" ) ) {
+                            clipTransform = Transform.valueOf( parts[j] );
+                        }
+                    }
+                    loader.add( directory + parts[2], clipTransform );
+                    loader.add( directory + parts[2], clipTransform.flipped() );
+                }
+
+            }
+
+        } catch ( IllegalArgumentException exc ) {
+            throw new IOException( path + ": invalid transform", exc );
+        }
+
+    }
+
+    private static String uncomment( String line ) {
+        int comment = line.indexOf( '#' );
+        return ( comment >= 0 ? line.substring( 0, comment ) : line ).trim();
+    }
+
+    private void addTransition( String[] parts, String where ) throws IOException {
+
+        boolean any = parts[1].equals( "*" );
+        State to = state( parts[2], where );
+        long required = 0;
+        long forbidden = 0;
+        boolean finished = false;
+
+        // the condition may be written with or without spaces around "&"
+        String condition = String.join( "", List.of( parts ).subList( 3, parts.length ) );
+
+        for ( String term : condition.split( "&" ) ) {
+            if ( term.equals( "always" ) ) {
+                continue;
+            } else if ( term.equals( "finished" ) ) {
+                finished = true;
+            } else if ( term.startsWith( "!" ) ) {
+                forbidden |= 1L << flag( term.substring( 1 ), where );
+            } else {
+                required |= 1L << flag( term, where );
+            }
+        }
+
+        Transition transition = new Transition( to, any, required, forbidden, finished );
+
+        if ( any ) {
+            for ( State s : states ) {
+                s.transitions.add( transition );
+            }
+        } else {
+            state( parts[1], where ).transitions.add( transition );
+        }
+
+    }
+
+    private static void expect( String[] parts, int count, String where ) throws IOException {
+        if ( parts.length < count ) {
+            throw new IOException( where + "expected " + ( count - 1 ) + " values after " + parts[0] );
+        }
+    }
+
+    private Clip findClip( String name ) {
+        for ( Clip c : clips ) {
+            if ( c.name.equals( name ) ) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    private State findState( String name ) {
+        for ( State s : states ) {
+            if ( s.name.equals( name ) ) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    private Clip clip( String name, String where ) throws IOException {
+        Clip clip = findClip( name );
+        if ( clip == null ) {
+            throw new IOException( where + "unknown clip " + name );
+        }
+        return clip;
+    }
+
+    private State state( String name, String where ) throws IOException {
+        State state = findState( name );
+        if ( state == null ) {
+            throw new IOException( where + "unknown state " + name );
+        }
+        return state;
+    }
+
+    private int flag( String name, String where ) throws IOException {
+        int index = flags.indexOf( name );
+        if ( index < 0 ) {
+            throw new IOException( where + "unknown flag " + name );
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of a flag or trigger, to be set in the controllers.
+     */
+    public int getFlag( String name ) {
+        int index = flags.indexOf( name );
+        if ( index < 0 ) {
+            throw new IllegalArgumentException( path + ": unknown flag " + name );
+        }
+        return index;
+    }
+
+    /**
+     * @return the index of a state, to be compared with the state of the
+     * controllers.
+     */
+    public int getState( String name ) {
+        State state = findState( name );
+        if ( state == null ) {
+            throw new IllegalArgumentException( path + ": unknown state " + name );
+        }
+        return state.index;
+    }
+
+    State getInitialState() {
+        return states.get( 0 );
+    }
+
+    /**
+     * @return the flags that are triggers, as a mask.
+     */
+    long getTriggers() {
+        return triggers;
+    }
+
+    /**
+     * @return if the images of the sheets look to the left, so they are
+     * mirrored when the character looks to the right.
+     */
+    public boolean isFacingLeft() {
+        return facingLeft;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int getStateCount() {
+        return states.size();
+    }
+
+    public int getClipCount() {
+        return clips.size();
+    }
+
+    /**
+     * Releases the frames of the clips. The timelines of the shared clips
+     * are released with the timelines.
+     */
+    public void dispose() {
+        for ( Clip c : clips ) {
+            AssetCache.getShared().release( c.path, c.transform );
+            AssetCache.getShared().release( c.path, c.transform.flipped() );
+        }
+        clips.clear();
+    }
+
+}
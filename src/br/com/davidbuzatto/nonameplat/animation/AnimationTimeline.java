@@ -0,0 +1,70 @@
+package br.com.davidbuzatto.nonameplat.animation;
+
+import br.com.davidbuzatto.jsge.animation.frame.SpriteMapAnimationFrame;
+import java.util.List;
+
+/**
+ * A looping clip with a single clock, shared by every entity that shows
+ * it. The clock is advanced once per step, no matter how many entities
+ * use the clip, and each entity reads the current frame, optionally
+ * shifted by a phase offset so they don't all move in lockstep.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class AnimationTimeline {
+    
+    private final List<SpriteMapAnimationFrame> frames;
+    private final double timeToNextFrame;
+    private final double duration;
+    private double time;
+    
+    public AnimationTimeline( List<SpriteMapAnimationFrame> frames, double timeToNextFrame ) {
+        this.frames = frames;
+        this.timeToNextFrame = timeToNextFrame;
+        this.duration = frames.size() * timeToNextFrame;
+    }
+    
+    public void update( double delta ) {
+        time += delta;
+        // kept inside one loop, so the clock doesn't lose precision
+        if ( time >= duration ) {
+            time %= duration;
+        }
+    }
+    
+    public SpriteMapAnimationFrame getFrame() {
+        return getFrame( 0 );
+    }
+    
+    /**
+     * @param offset how far ahead of the clock, in seconds.
+     */
+    public SpriteMapAnimationFrame getFrame( double offset ) {
+        return frames.get( getFrameIndex( offset ) );
+    }
+
+    /**
+     * @return the index of the current frame, to pick the same frame in
+     * another list (a mirrored one, for example).
+     */
+    public int getFrameIndex( double offset ) {
+        int index = (int) ( ( time + offset ) / timeToNextFrame ) % frames.size();
+        if ( index < 0 ) {
+            index += frames.size();
+        }
+        return index;
+    }
+    
+    public double getTime() {
+        return time;
+    }
+
+    public double getDuration() {
+        return duration;
+    }
+    
+    public int getFrameCount() {
+        return frames.size();
+    }
+    
+}
@@ -0,0 +1,115 @@
+package br.com.davidbuzatto.nonameplat.animation;
+
+import br.com.davidbuzatto.nonameplat.assets.AssetCache;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache.Transform;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The shared timelines of a world, one per clip. A clip is a sprite sheet,
+ * with a transform, cut in frames of a size and played at a frame time;
+ * asking twice for the same clip gives the same timeline.
+ *
+ * The animation sets of the characters are kept here too, read once per
+ * world, since their shared clips are played by these timelines.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class AnimationTimelines {
+    
+    private final Map<String, AnimationTimeline> timelines;
+    
+    // kept in creation order, to be updated without an iterator
+    private final List<AnimationTimeline> ordered;
+    private final List<String> paths;
+    private final List<Transform> transforms;
+    
+    private final Map<String, AnimationSet> sets;
+    
+    public AnimationTimelines() {
+        this.timelines = new HashMap<>();
+        this.ordered = new ArrayList<>();
+        this.paths = new ArrayList<>();
+        this.transforms = new ArrayList<>();
+        this.sets = new HashMap<>();
+    }
+    
+    /**
+     * @return the timeline of the clip, created (and its frames acquired
+     * from the asset cache) the first time.
+     */
+    public AnimationTimeline get( String path, Transform transform, double frameWidth, double frameHeight, double timeToNextFrame ) {
+        
+        String key = path + "#" + transform.name() + "#" + frameWidth + "x" + frameHeight + "@" + timeToNextFrame;
+        AnimationTimeline timeline = timelines.get( key );
+        
+        if ( timeline == null ) {
+            timeline = new AnimationTimeline( 
+                    AssetCache.getShared().acquireFrames( path, transform, frameWidth, frameHeight ), 
+                    timeToNextFrame );
+            timelines.put( key, timeline );
+            ordered.add( timeline );
+            paths.add( path );
+            transforms.add( transform );
+        }
+        
+        return timeline;
+        
+    }
+    
+    /**
+     * @return the animation set of the descriptor, read the first time.
+     */
+    public AnimationSet getSet( String path ) {
+        
+        AnimationSet set = sets.get( path );
+        
+        if ( set == null ) {
+            try {
+                set = AnimationSet.read( Path.of( path ), this );
+            } catch ( IOException exc ) {
+                throw new UncheckedIOException( "Could not load animations " + path, exc );
+            }
+            sets.put( path, set );
+        }
+        
+        return set;
+        
+    }
+    
+    /**
+     * Advances every timeline.
+     */
+    public void update( double delta ) {
+        for ( int i = 0; i < ordered.size(); i++ ) {
+            ordered.get( i ).update( delta );
+        }
+    }
+    
+    /**
+     * Releases the frames of every timeline and animation set.
+     */
+    public void dispose() {
+        for ( AnimationSet set : sets.values() ) {
+            set.dispose();
+        }
+        sets.clear();
+        for ( int i = 0; i < ordered.size(); i++ ) {
+            AssetCache.getShared().release( paths.get( i ), transforms.get( i ) );
+        }
+        timelines.clear();
+        ordered.clear();
+        paths.clear();
+        transforms.clear();
+    }
+    
+    public int size() {
+        return ordered.size();
+    }
+    
+}
@@ -0,0 +1,294 @@
+package br.com.davidbuzatto.nonameplat.assets;
+
+import br.com.davidbuzatto.jsge.animation.AnimationUtils;
+import br.com.davidbuzatto.jsge.animation.frame.SpriteMapAnimationFrame;
+import br.com.davidbuzatto.jsge.image.Image;
+import br.com.davidbuzatto.nonameplat.utils.Utils;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shares the images of the game and the animation frames cut from them,
+ * so each sprite sheet is decoded, recolored and flipped once, no matter
+ * how many entities use it.
+ * 
+ * Assets are keyed by path and transform. Each acquire counts a reference
+ * to the asset and must be paired with a release; assets with no
+ * references are kept until evictUnused is called, when a level is
+ * disposed, so an asset released and acquired again while playing (an
+ * enemy unloaded and loaded back) is not loaded again.
+ * 
+ * The images and frame lists handed out are shared: they must not be
+ * changed.
+ * 
+ * Images can be loaded ahead of time, in parallel, by an AssetLoader; the
+ * acquires that follow find them cached.
+ * 
+ * When the images were packed by AtlasPacker the originals come from the
+ * pages of the TextureAtlas, and their frames draw straight from the
+ * page; only the recolored and flipped images are made by themselves.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class AssetCache {
+    
+    /**
+     * What is done to an image after it is loaded.
+     */
+    public static enum Transform {
+        
+        NONE( false, false ),
+        FLIP_HORIZONTAL( true, false ),
+        HERO_COLORS( false, true ),
+        HERO_COLORS_FLIP_HORIZONTAL( true, true );
+        
+        private final boolean flipHorizontal;
+        private final boolean heroColors;
+        
+        private Transform( boolean flipHorizontal, boolean heroColors ) {
+            this.flipHorizontal = flipHorizontal;
+            this.heroColors = heroColors;
+        }
+
+        public boolean isFlipHorizontal() {
+            return flipHorizontal;
+        }
+
+        public boolean isHeroColors() {
+            return heroColors;
+        }
+        
+        /**
+         * @return the same transform without the flip.
+         */
+        public Transform unflipped() {
+            return heroColors ? HERO_COLORS : NONE;
+        }
+
+        /**
+         * @return the same transform with the flip.
+         */
+        public Transform flipped() {
+            return heroColors ? HERO_COLORS_FLIP_HORIZONTAL : FLIP_HORIZONTAL;
+        }
+
+    }
+    
+    private static class Entry {
+        
+        final Image image;
+        final Map<String, List<SpriteMapAnimationFrame>> frames;
+        int references;
+        
+        Entry( Image image ) {
+            this.image = image;
+            this.frames = new HashMap<>();
+        }
+        
+    }
+    
+    private static final AssetCache SHARED = new AssetCache();
+    
+    private final Map<String, Entry> entries;
+    private long hits;
+    private long misses;
+    
+    private TextureAtlas atlas;
+    private boolean atlasLoaded;
+    
+    public AssetCache() {
+        this.entries = new HashMap<>();
+    }
+    
+    /**
+     * @return the cache used by the game.
+     */
+    public static AssetCache getShared() {
+        return SHARED;
+    }
+    
+    public synchronized Image acquireImage( String path, Transform transform ) {
+        Entry e = entry( path, transform );
+        e.references++;
+        return e.image;
+    }
+    
+    /**
+     * Acquires an image and the frames of frameWidth by frameHeight cut
+     * from it. The frames of flipped images are in reverse order, so the
+     * animation plays the same way to both sides.
+     */
+    public synchronized List<SpriteMapAnimationFrame> acquireFrames( String path, Transform transform, double frameWidth, double frameHeight ) {
+        
+        Entry e = entry( path, transform );
+        e.references++;
+        
+        String size = frameWidth + "x" + frameHeight;
+        List<SpriteMapAnimationFrame> frames = e.frames.get( size );
+        
+        if ( frames == null ) {
+            TextureAtlas.Region region = transform == Transform.NONE ? findRegion( path ) : null;
+            if ( region != null ) {
+                frames = Collections.unmodifiableList( getAtlas().getFrames( region, frameWidth, frameHeight ) );
+            } else {
+                frames = Collections.unmodifiableList( 
+                        AnimationUtils.getSpriteMapAnimationFrameList( e.image, frameWidth, frameHeight, transform.isFlipHorizontal() ) );
+            }
+            e.frames.put( size, frames );
+        }
+        
+        return frames;
+        
+    }
+    
+    /**
+     * Releases a reference acquired by acquireImage or acquireFrames.
+     */
+    public synchronized void release( String path, Transform transform ) {
+        Entry e = entries.get( key( path, transform ) );
+        if ( e != null && e.references > 0 ) {
+            e.references--;
+        }
+    }
+    
+    /**
+     * Removes the assets without references.
+     * 
+     * @return how many were removed.
+     */
+    public synchronized int evictUnused() {
+        
+        int count = 0;
+        
+        for ( Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            if ( it.next().references == 0 ) {
+                it.remove();
+                count++;
+            }
+        }
+        
+        return count;
+        
+    }
+    
+    private Entry entry( String path, Transform transform ) {
+        
+        String key = key( path, transform );
+        Entry e = entries.get( key );
+        
+        if ( e != null ) {
+            hits++;
+            return e;
+        }
+        
+        misses++;
+        
+        Image image;
+        if ( transform.isFlipHorizontal() ) {
+            image = entry( path, transform.unflipped() ).image.copyFlipHorizontal();
+        } else if ( transform.isHeroColors() ) {
+            image = Utils.replaceHeroImageColors( entry( path, Transform.NONE ).image.copy() );
+        } else {
+            image = loadOriginal( path );
+        }
+        
+        e = new Entry( image );
+        entries.put( key, e );
+        
+        return e;
+        
+    }
+    
+    /**
+     * Loads an image as it is in its file, from the atlas if it was packed.
+     * Doesn't touch the cache, so it may be called by loading threads.
+     */
+    Image loadOriginal( String path ) {
+        TextureAtlas.Region region = findRegion( path );
+        return region != null ? getAtlas().getImage( region ) : Utils.loadImage( path );
+    }
+    
+    /**
+     * Adds an image loaded ahead of time, without references. Nothing is
+     * done if the asset is already cached.
+     */
+    synchronized void put( String path, Transform transform, Image image ) {
+        String key = key( path, transform );
+        if ( !entries.containsKey( key ) ) {
+            entries.put( key, new Entry( image ) );
+            misses++;
+        }
+    }
+    
+    private TextureAtlas.Region findRegion( String path ) {
+        TextureAtlas a = getAtlas();
+        return a == null ? null : a.find( path );
+    }
+    
+    /**
+     * @return the atlas the images come from, read from the default root
+     * the first time, or null if the images were not packed.
+     */
+    public synchronized TextureAtlas getAtlas() {
+        
+        if ( !atlasLoaded ) {
+            try {
+                atlas = TextureAtlas.load( TextureAtlas.DEFAULT_ROOT );
+            } catch ( IOException exc ) {
+                throw new UncheckedIOException( "Could not load the texture atlas", exc );
+            }
+            atlasLoaded = true;
+        }
+        
+        return atlas;
+        
+    }
+    
+    /**
+     * Uses the given atlas instead of the default one, or no atlas if
+     * null. Meant to be called before anything is cached.
+     */
+    public synchronized void setAtlas( TextureAtlas atlas ) {
+        this.atlas = atlas;
+        this.atlasLoaded = true;
+    }
+    
+    private static String key( String path, Transform transform ) {
+        return path + "#" + transform.name();
+    }
+    
+    /**
+     * @return how many assets are cached, with or without references.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized int getReferences( String path, Transform transform ) {
+        Entry e = entries.get( key( path, transform ) );
+        return e == null ? 0 : e.references;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return how many images were loaded or transformed.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+    
+    @Override
+    public synchronized String toString() {
+        String s = String.format( "%d assets, %d hits, %d misses", entries.size(), hits, misses );
+        return atlas == null ? s : s + ", atlas: " + atlas;
+    }
+    
+}
@@ -0,0 +1,202 @@
+package br.com.davidbuzatto.nonameplat.assets;
+
+import br.com.davidbuzatto.jsge.image.Image;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache.Transform;
+import br.com.davidbuzatto.nonameplat.utils.Utils;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads images into an AssetCache ahead of time, decoding them in parallel
+ * on a pool of worker threads, so the cold start takes about as long as
+ * the number of images divided by the number of cores.
+ *
+ * The images (and the transforms that will be asked for them) are added
+ * before start is called. Each image is a job: it is decoded, or cut from
+ * its atlas page, then recolored and flipped as needed and put in the
+ * cache without references, to be acquired later by whoever needs it.
+ * The progress can be followed while the jobs run, to draw a loading
+ * screen, and finish waits for the remaining ones.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class AssetLoader {
+
+    private final AssetCache cache;
+    private final int parallelism;
+
+    // image paths and their transforms, in the order they were added
+    private final Map<String, Set<Transform>> jobs;
+
+    private ForkJoinPool pool;
+    private CountDownLatch remaining;
+    private final AtomicInteger pending;
+    private final AtomicInteger loaded;
+
+    private volatile RuntimeException failure;
+    private long startTime;
+    private volatile long elapsedTime;
+
+    public AssetLoader( AssetCache cache, int parallelism ) {
+        this.cache = cache;
+        this.parallelism = Math.max( parallelism, 1 );
+        this.jobs = new LinkedHashMap<>();
+        this.pending = new AtomicInteger();
+        this.loaded = new AtomicInteger();
+    }
+
+    /**
+     * Adds an image to be loaded as it is.
+     */
+    public void add( String path ) {
+        add( path, Transform.NONE );
+    }
+
+    /**
+     * Adds an image to be loaded with a transform. The original image is
+     * always cached too.
+     */
+    public void add( String path, Transform transform ) {
+        if ( pool != null ) {
+            throw new IllegalStateException( "The loader was already started." );
+        }
+        jobs.computeIfAbsent( path, p -> EnumSet.noneOf( Transform.class ) ).add( transform );
+    }
+
+    /**
+     * Starts loading in the background.
+     */
+    public void start() {
+
+        if ( pool != null ) {
+            throw new IllegalStateException( "The loader was already started." );
+        }
+
+        startTime = System.nanoTime();
+        pool = new ForkJoinPool( parallelism );
+        remaining = new CountDownLatch( jobs.size() );
+        pending.set( jobs.size() );
+
+        // the atlas index is read once, before the workers ask for it
+        cache.getAtlas();
+
+        for ( Map.Entry<String, Set<Transform>> job : jobs.entrySet() ) {
+            pool.execute( () -> run( job.getKey(), job.getValue() ) );
+        }
+
+    }
+
+    private void run( String path, Set<Transform> transforms ) {
+
+        try {
+
+            if ( failure == null ) {
+
+                Image original = cache.loadOriginal( path );
+                cache.put( path, Transform.NONE, original );
+
+                Image recolored = null;
+                for ( Transform t : transforms ) {
+                    if ( t.isHeroColors() ) {
+                        recolored = Utils.replaceHeroImageColors( original.copy() );
+                        cache.put( path, Transform.HERO_COLORS, recolored );
+                        break;
+                    }
+                }
+
+                for ( Transform t : transforms ) {
+                    if ( t.isFlipHorizontal() ) {
+                        Image unflipped = t.isHeroColors() ? recolored : original;
+                        cache.put( path, t, unflipped.copyFlipHorizontal() );
+                    }
+                }
+
+                loaded.incrementAndGet();
+
+            }
+
+        } catch ( RuntimeException exc ) {
+            if ( failure == null ) {
+                failure = new IllegalStateException( "Could not load " + path, exc );
+            }
+        } finally {
+            // the time is taken before the last job is seen as done
+            if ( pending.decrementAndGet() == 0 ) {
+                elapsedTime = System.nanoTime() - startTime;
+            }
+            remaining.countDown();
+        }
+
+    }
+
+    /**
+     * @return if every image was loaded (or the loading failed).
+     */
+    public boolean isDone() {
+        return remaining != null && remaining.getCount() == 0;
+    }
+
+    /**
+     * @return how much was loaded, from 0 to 1.
+     */
+    public double getProgress() {
+        return jobs.isEmpty() ? 1 : (double) loaded.get() / jobs.size();
+    }
+
+    /**
+     * Waits for the remaining images and stops the workers.
+     *
+     * @throws IllegalStateException if an image couldn't be loaded.
+     */
+    public void finish() {
+
+        if ( pool == null ) {
+            start();
+        }
+
+        try {
+            remaining.await();
+        } catch ( InterruptedException exc ) {
+            Thread.currentThread().interrupt();
+        }
+
+        pool.shutdown();
+        try {
+            pool.awaitTermination( 1, TimeUnit.SECONDS );
+        } catch ( InterruptedException exc ) {
+            Thread.currentThread().interrupt();
+        }
+
+        if ( failure != null ) {
+            throw failure;
+        }
+
+    }
+
+    public int getLoaded() {
+        return loaded.get();
+    }
+
+    public int getTotal() {
+        return jobs.size();
+    }
+
+    /**
+     * @return how long loading took, in nanoseconds, once done.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    @Override
+    public String toString() {
+        return String.format( "%d/%d images, %d threads, %.2f ms", loaded.get(), jobs.size(), parallelism, elapsedTime / 1_000_000.0 );
+    }
+
+}
@@ -0,0 +1,229 @@
+package br.com.davidbuzatto.nonameplat.assets;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+/**
+ * Packs the images of some directories into the pages of a TextureAtlas,
+ * writing the pages and the index of regions read by the game.
+ *
+ * Images are packed in shelves, tallest first, which suits the sprite
+ * sheets of the game (a single row of frames each). Images that don't fit
+ * in a page are left out and keep being loaded by themselves.
+ *
+ * The directories are packed in groups that never share a page, so what
+ * is used together is loaded together: the images of a level don't pull
+ * the pages of every enemy and boss.
+ *
+ * Usage: AtlasPacker &lt;images root&gt; &lt;output directory&gt; &lt;group&gt;...
+ * where each group is a list of directories, relative to the images root
+ * and separated by commas.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class AtlasPacker {
+
+    public static final int PAGE_SIZE = 2048;
+
+    // between regions, so filtering never reads the neighbor
+    public static final int PADDING = 2;
+
+    private static class Packed {
+
+        final String name;
+        final BufferedImage image;
+        int page;
+        int x;
+        int y;
+
+        Packed( String name, BufferedImage image ) {
+            this.name = name;
+            this.image = image;
+        }
+
+    }
+
+    private static class Shelf {
+
+        final int page;
+        final int y;
+        final int height;
+        int x;
+
+        Shelf( int page, int y, int height ) {
+            this.page = page;
+            this.y = y;
+            this.height = height;
+        }
+
+    }
+
+    /**
+     * Packs the images and writes the atlas.
+     *
+     * @return how many images were packed.
+     */
+    public static int pack( Path root, Path output, List<String> groups ) throws IOException {
+
+        List<Packed> images = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        List<Integer> pageHeights = new ArrayList<>();
+
+        for ( String group : groups ) {
+            List<Packed> packed = read( root, group.split( "," ), skipped );
+            place( packed, pageHeights );
+            images.addAll( packed );
+        }
+
+        Files.createDirectories( output );
+
+        for ( int page = 0; page < pageHeights.size(); page++ ) {
+
+            // the last shelf of a page decides its height
+            BufferedImage image = new BufferedImage( PAGE_SIZE, pageHeights.get( page ), BufferedImage.TYPE_INT_ARGB );
+
+            // pixels are copied as they are, blending would change the
+            // translucent ones
+            for ( Packed p : images ) {
+                if ( p.page == page ) {
+                    int w = p.image.getWidth();
+                    int h = p.image.getHeight();
+                    image.setRGB( p.x, p.y, w, h, p.image.getRGB( 0, 0, w, h, null, 0, w ), 0, w );
+                }
+            }
+
+            ImageIO.write( image, "png", output.resolve( pageName( page ) ).toFile() );
+
+        }
+
+        try ( BufferedWriter writer = Files.newBufferedWriter( output.resolve( TextureAtlas.INDEX ), StandardCharsets.UTF_8 ) ) {
+
+            writer.write( "# page <index> <file>" );
+            writer.newLine();
+            for ( int page = 0; page < pageHeights.size(); page++ ) {
+                writer.write( String.format( "page %d %s", page, pageName( page ) ) );
+                writer.newLine();
+            }
+
+            writer.write( "# region <name> <page> <x> <y> <width> <height>" );
+            writer.newLine();
+            for ( Packed p : images ) {
+                writer.write( String.format( "region %s %d %d %d %d %d", p.name, p.page, p.x, p.y, p.image.getWidth(), p.image.getHeight() ) );
+                writer.newLine();
+            }
+
+        }
+
+        for ( String name : skipped ) {
+            System.out.printf( "%s doesn't fit in a page, not packed%n", name );
+        }
+
+        return images.size();
+
+    }
+
+    private static List<Packed> read( Path root, String[] directories, List<String> skipped ) throws IOException {
+
+        List<Packed> images = new ArrayList<>();
+
+        for ( String directory : directories ) {
+            List<Path> files;
+            try ( Stream<Path> walk = Files.walk( root.resolve( directory ) ) ) {
+                files = walk.filter( p -> p.toString().endsWith( ".png" ) ).sorted().toList();
+            }
+            for ( Path file : files ) {
+                String name = root.relativize( file ).toString().replace( '\\', '/' );
+                BufferedImage image = ImageIO.read( file.toFile() );
+                if ( image == null ) {
+                    throw new IOException( "Could not read " + file );
+                }
+                if ( image.getWidth() + PADDING > PAGE_SIZE || image.getHeight() + PADDING > PAGE_SIZE ) {
+                    skipped.add( name );
+                } else {
+                    images.add( new Packed( name, image ) );
+                }
+            }
+        }
+
+        // the order of the input doesn't change the atlas
+        images.sort( Comparator.comparingInt( ( Packed p ) -> -p.image.getHeight() )
+                .thenComparingInt( p -> -p.image.getWidth() )
+                .thenComparing( p -> p.name ) );
+
+        return images;
+
+    }
+
+    /**
+     * Places the images of a group in shelves, on pages of their own
+     * appended to the pages.
+     */
+    private static void place( List<Packed> images, List<Integer> pageHeights ) {
+
+        List<Shelf> shelves = new ArrayList<>();
+        int firstPage = pageHeights.size();
+
+        for ( Packed p : images ) {
+
+            int w = p.image.getWidth() + PADDING;
+            int h = p.image.getHeight() + PADDING;
+            Shelf shelf = null;
+
+            // the first shelf with room, on any page of the group
+            for ( Shelf s : shelves ) {
+                if ( s.height >= h && s.x + w <= PAGE_SIZE ) {
+                    shelf = s;
+                    break;
+                }
+            }
+
+            if ( shelf == null ) {
+                int page = pageHeights.size() - 1;
+                if ( page < firstPage || pageHeights.get( page ) + h > PAGE_SIZE ) {
+                    pageHeights.add( 0 );
+                    page++;
+                }
+                shelf = new Shelf( page, pageHeights.get( page ), h );
+                pageHeights.set( page, shelf.y + h );
+                shelves.add( shelf );
+            }
+
+            p.page = shelf.page;
+            p.x = shelf.x;
+            p.y = shelf.y;
+            shelf.x += w;
+
+        }
+
+    }
+
+    private static String pageName( int page ) {
+        return "page" + page + ".png";
+    }
+
+    public static void main( String[] args ) throws IOException {
+
+        if ( args.length < 3 ) {
+            System.err.println( "Usage: AtlasPacker <images root> <output directory> <directory[,directory...]>..." );
+            System.exit( 1 );
+        }
+
+        Path root = Path.of( args[0] );
+        Path output = Path.of( args[1] );
+        List<String> groups = List.of( args ).subList( 2, args.length );
+
+        int count = pack( root, output, groups );
+        System.out.printf( "%d images -> %s%n", count, output );
+
+    }
+
+}
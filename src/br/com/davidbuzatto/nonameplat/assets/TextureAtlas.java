@@ -0,0 +1,267 @@
+package br.com.davidbuzatto.nonameplat.assets;
+
+import br.com.davidbuzatto.jsge.animation.frame.SpriteMapAnimationFrame;
+import br.com.davidbuzatto.jsge.geom.Rectangle;
+import br.com.davidbuzatto.jsge.image.Image;
+import br.com.davidbuzatto.nonameplat.utils.Utils;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The images packed by AtlasPacker: a few large pages and the region of
+ * each packed image inside them. A page is loaded the first time one of
+ * its regions is used and the images and frames given out are views of the
+ * page, so every region of a page costs a single file open and decode.
+ *
+ * Regions are named by the path of the original image relative to the root
+ * of the images, "sprites/hero/idle.png" for example.
+ *
+ * An atlas older than any of its original images is not used, so an image
+ * edited after packing is never drawn stale; the images are loaded by
+ * themselves until they are packed again.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class TextureAtlas {
+
+    public static final String DEFAULT_ROOT = "resources/images/";
+    public static final String DIRECTORY = "atlas";
+    public static final String INDEX = "atlas.txt";
+
+    /**
+     * Where an image was packed.
+     */
+    public static class Region {
+
+        private final String name;
+        private final int page;
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+
+        public Region( String name, int page, int x, int y, int width, int height ) {
+            this.name = name;
+            this.page = page;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPage() {
+            return page;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+    }
+
+    private final String root;
+    private final List<String> pagePaths;
+    private final Image[] pages;
+    private final Object[] pageLocks;
+    private final Map<String, Region> regions;
+    private int loadedPages;
+
+    private TextureAtlas( String root, List<String> pagePaths, Map<String, Region> regions ) {
+        this.root = root;
+        this.pagePaths = pagePaths;
+        this.pages = new Image[pagePaths.size()];
+        this.pageLocks = new Object[pagePaths.size()];
+        for ( int i = 0; i < pageLocks.length; i++ ) {
+            pageLocks[i] = new Object();
+        }
+        this.regions = regions;
+    }
+
+    /**
+     * Reads the index of the atlas of the images under root.
+     *
+     * @return the atlas or null if the images were not packed or were
+     * changed after packing.
+     */
+    public static TextureAtlas load( String root ) throws IOException {
+
+        Path directory = Path.of( root, DIRECTORY );
+        Path index = directory.resolve( INDEX );
+
+        if ( !Files.exists( index ) ) {
+            return null;
+        }
+
+        List<String> pagePaths = new ArrayList<>();
+        Map<String, Region> regions = new HashMap<>();
+        List<String> lines = Files.readAllLines( index, StandardCharsets.UTF_8 );
+
+        for ( int i = 0; i < lines.size(); i++ ) {
+
+            String line = lines.get( i ).trim();
+            if ( line.isEmpty() || line.startsWith( "#" ) ) {
+                continue;
+            }
+
+            String[] parts = line.split( "\\s+" );
+
+            try {
+                if ( parts[0].equals( "page" ) && parts.length == 3 ) {
+                    if ( Integer.parseInt( parts[1] ) != pagePaths.size() ) {
+                        throw new IOException( String.format( "%s:%d: pages out of order", index, i + 1 ) );
+                    }
+                    pagePaths.add( directory.resolve( parts[2] ).toString() );
+                } else if ( parts[0].equals( "region" ) && parts.length == 7 ) {
+                    Region r = new Region(
+                            parts[1],
+                            Integer.parseInt( parts[2] ),
+                            Integer.parseInt( parts[3] ),
+                            Integer.parseInt( parts[4] ),
+                            Integer.parseInt( parts[5] ),
+                            Integer.parseInt( parts[6] ) );
+                    if ( r.page < 0 || r.page >= pagePaths.size() ) {
+                        throw new IOException( String.format( "%s:%d: unknown page %d", index, i + 1, r.page ) );
+                    }
+                    regions.put( r.name, r );
+                } else {
+                    throw new IOException( String.format( "%s:%d: invalid line %s", index, i + 1, line ) );
+                }
+            } catch ( NumberFormatException exc ) {
+                throw new IOException( String.format( "%s:%d: invalid number in %s", index, i + 1, line ), exc );
+            }
+
+        }
+
+        FileTime packed = Files.getLastModifiedTime( index );
+        for ( Region r : regions.values() ) {
+            Path original = Path.of( root, r.name );
+            if ( Files.exists( original ) && Files.getLastModifiedTime( original ).compareTo( packed ) > 0 ) {
+                System.err.printf( "%s changed after %s was packed, the atlas is not used (run ant pack-atlas)%n", original, index );
+                return null;
+            }
+        }
+
+        return new TextureAtlas( root.endsWith( "/" ) ? root : root + "/", pagePaths, regions );
+
+    }
+
+    /**
+     * @param path the path of the original image, as given to
+     * Utils.loadImage.
+     * @return the region of the image or null if it wasn't packed.
+     */
+    public Region find( String path ) {
+
+        String name = path.replace( '\\', '/' );
+        if ( name.startsWith( root ) ) {
+            name = name.substring( root.length() );
+        }
+
+        return regions.get( name );
+
+    }
+
+    /**
+     * @return the page of a region, loaded the first time.
+     */
+    public Image getPage( Region region ) {
+        return getPage( region.page );
+    }
+
+    /**
+     * Loads a page if it isn't loaded yet. Different pages may be loaded
+     * by different threads at the same time.
+     */
+    public Image getPage( int index ) {
+
+        synchronized ( pageLocks[index] ) {
+
+            Image page = pages[index];
+
+            if ( page == null ) {
+                page = Utils.loadImage( pagePaths.get( index ) );
+                pages[index] = page;
+                synchronized ( this ) {
+                    loadedPages++;
+                }
+            }
+
+            return page;
+
+        }
+
+    }
+
+    /**
+     * @return an image that shares the pixels of the page, to be copied
+     * before being changed.
+     */
+    public Image getImage( Region region ) {
+        return new Image( getPage( region ).getBuffer().getSubimage( region.x, region.y, region.width, region.height ) );
+    }
+
+    /**
+     * Cuts the region in frames of frameWidth by frameHeight, row by row.
+     * The frames draw straight from the page.
+     */
+    public List<SpriteMapAnimationFrame> getFrames( Region region, double frameWidth, double frameHeight ) {
+
+        Image page = getPage( region );
+        List<SpriteMapAnimationFrame> frames = new ArrayList<>();
+
+        int columns = (int) ( region.width / frameWidth );
+        int rows = (int) ( region.height / frameHeight );
+
+        for ( int row = 0; row < rows; row++ ) {
+            for ( int column = 0; column < columns; column++ ) {
+                frames.add( new SpriteMapAnimationFrame(
+                        new Rectangle( region.x + column * frameWidth, region.y + row * frameHeight, frameWidth, frameHeight ),
+                        page ) );
+            }
+        }
+
+        return frames;
+
+    }
+
+    public int getPageCount() {
+        return pages.length;
+    }
+
+    public synchronized int getLoadedPages() {
+        return loadedPages;
+    }
+
+    public int getRegionCount() {
+        return regions.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format( "%d regions in %d pages, %d loaded", regions.size(), pages.length, loadedPages );
+    }
+
+}
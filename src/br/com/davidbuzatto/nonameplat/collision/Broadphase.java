@@ -0,0 +1,75 @@
+package br.com.davidbuzatto.nonameplat.collision;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
+import java.awt.Color;
+import java.util.List;
+
+/**
+ * Broadphase collision detection: finds which AABBs may touch without
+ * testing every pair.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public interface Broadphase {
+    
+    /**
+     * Available implementations.
+     */
+    public static enum Type {
+        
+        QUADTREE,
+        SPATIAL_HASH,
+        SWEEP_AND_PRUNE;
+        
+        public Broadphase create( double cellSize, double worldWidth, double worldHeight ) {
+            return switch ( this ) {
+                case QUADTREE -> new QuadtreeBroadphase( worldWidth, worldHeight, 5 );
+                case SPATIAL_HASH -> new SpatialHash( cellSize );
+                case SWEEP_AND_PRUNE -> new SweepAndPrune();
+            };
+        }
+        
+    }
+    
+    /**
+     * Receives the pairs of overlapping AABBs.
+     */
+    @FunctionalInterface
+    public static interface PairVisitor {
+        void visit( AABB a, AABB b );
+    }
+    
+    public void insert( AABB aabb );
+    
+    public void remove( AABB aabb );
+    
+    /**
+     * Notifies that an AABB moved.
+     */
+    public void move( AABB aabb );
+    
+    public boolean contains( AABB aabb );
+    
+    public int size();
+    
+    public void clear();
+    
+    /**
+     * Collects the AABBs that may touch the region (x1, y1)-(x2, y2), each
+     * one once. The result list is not cleared.
+     */
+    public void query( double x1, double y1, double x2, double y2, List<AABB> result );
+    
+    /**
+     * Visits each pair of overlapping AABBs once.
+     */
+    public void forEachPair( PairVisitor visitor );
+    
+    public void draw( EngineFrame engine, double x, double y, double scale, Color color );
+    
+    public static boolean overlaps( AABB a, AABB b ) {
+        return a.x1 <= b.x2 && a.x2 >= b.x1 && a.y1 <= b.y2 && a.y2 >= b.y1;
+    }
+    
+}
@@ -0,0 +1,23 @@
+package br.com.davidbuzatto.nonameplat.collision;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.nonameplat.entities.characters.BaseEnemy;
+import br.com.davidbuzatto.nonameplat.entities.characters.Hero;
+import br.com.davidbuzatto.nonameplat.entities.items.Coin;
+
+/**
+ * Receives the contacts found by the contact pass, by kind of entity.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public interface ContactListener {
+    
+    public void heroSolid( Hero hero, AABB solid );
+    
+    public void heroEnemy( Hero hero, BaseEnemy enemy );
+    
+    public void heroCoin( Hero hero, Coin coin );
+    
+    public void enemySolid( BaseEnemy enemy, AABB solid );
+    
+}
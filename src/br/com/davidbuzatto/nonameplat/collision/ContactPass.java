@@ -0,0 +1,175 @@
+package br.com.davidbuzatto.nonameplat.collision;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.nonameplat.entities.characters.BaseEnemy;
+import br.com.davidbuzatto.nonameplat.entities.characters.Hero;
+import br.com.davidbuzatto.nonameplat.entities.items.Coin;
+import br.com.davidbuzatto.nonameplat.profiling.CollisionPassEvent;
+import br.com.davidbuzatto.nonameplat.world.TileGrid;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.EventType;
+
+/**
+ * Finds the serial contacts of a step and dispatches them to the entities
+ * involved: the hero against the static solids and every contact between
+ * entities. The contacts of the enemies with the solids only touch one
+ * enemy each and are resolved in parallel by EnemySimulator, with
+ * querySolids.
+ * 
+ * Contacts with static solids come from the tile grid, around the hero.
+ * Contacts between entities come from the broadphase pairs. All pairs are
+ * collected first and then dispatched, solids first. Each run is a
+ * CollisionPassEvent for the flight recorder.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class ContactPass {
+    
+    /**
+     * How far from an entity the solids are looked for, so the collision
+     * probes are covered.
+     */
+    public static final double SOLID_MARGIN = 10;
+    
+    private static final EventType PASS_EVENT_TYPE = EventType.getEventType( CollisionPassEvent.class );
+    
+    private AABB[] pairsA;
+    private AABB[] pairsB;
+    private int pairCount;
+    
+    private final List<AABB> nearbySolids;
+    private final Broadphase.PairVisitor collector;
+    
+    public ContactPass() {
+        this.pairsA = new AABB[64];
+        this.pairsB = new AABB[64];
+        this.nearbySolids = new ArrayList<>();
+        this.collector = this::collectEntityPair;
+    }
+    
+    /**
+     * @param moving the AABBs whose contacts with the solids are found
+     * here, the hero's.
+     * @param resolvedSolidPairs solid pairs tested outside the pass in the
+     * same step (the enemies', by EnemySimulator), only reported.
+     */
+    public void run( TileGrid tileGrid, Broadphase broadphase, List<AABB> moving, int resolvedSolidPairs, ContactListener listener ) {
+        
+        // only created while recording, so the pass allocates nothing
+        CollisionPassEvent event = null;
+        if ( PASS_EVENT_TYPE.isEnabled() ) {
+            event = new CollisionPassEvent();
+            event.begin();
+        }
+        
+        pairCount = 0;
+        
+        for ( int i = 0; i < moving.size(); i++ ) {
+            
+            AABB a = moving.get( i );
+            
+            if ( !a.active ) {
+                continue;
+            }
+            
+            nearbySolids.clear();
+            querySolids( tileGrid, a, nearbySolids );
+            
+            for ( int j = 0; j < nearbySolids.size(); j++ ) {
+                addPair( a, nearbySolids.get( j ) );
+            }
+            
+        }
+        
+        int solidPairs = pairCount;
+        broadphase.forEachPair( collector );
+        
+        boolean recording = event != null;
+        int contacts = 0;
+        
+        for ( int i = 0; i < pairCount; i++ ) {
+            if ( recording && Broadphase.overlaps( pairsA[i], pairsB[i] ) ) {
+                contacts++;
+            }
+            dispatch( pairsA[i], pairsB[i], listener );
+            pairsA[i] = null;
+            pairsB[i] = null;
+        }
+        
+        if ( recording && event.shouldCommit() ) {
+            event.solidPairs = solidPairs + resolvedSolidPairs;
+            event.entityPairs = pairCount - solidPairs;
+            event.contacts = contacts;
+            event.commit();
+        }
+        
+    }
+    
+    /**
+     * Collects the solids that may touch the probes of an entity. Only
+     * reads the grid, so it can be called from several threads as long
+     * as each one has its own result list.
+     */
+    public static void querySolids( TileGrid tileGrid, AABB a, List<AABB> result ) {
+        tileGrid.querySolids( a.x1 - SOLID_MARGIN, a.y1 - SOLID_MARGIN, a.x2 + SOLID_MARGIN, a.y2 + SOLID_MARGIN, result );
+    }
+    
+    private void collectEntityPair( AABB a, AABB b ) {
+        if ( a.active && b.active ) {
+            addPair( a, b );
+        }
+    }
+    
+    private void addPair( AABB a, AABB b ) {
+        
+        if ( pairCount == pairsA.length ) {
+            AABB[] newA = new AABB[pairCount * 2];
+            AABB[] newB = new AABB[pairCount * 2];
+            System.arraycopy( pairsA, 0, newA, 0, pairCount );
+            System.arraycopy( pairsB, 0, newB, 0, pairCount );
+            pairsA = newA;
+            pairsB = newB;
+        }
+        
+        pairsA[pairCount] = a;
+        pairsB[pairCount] = b;
+        pairCount++;
+        
+    }
+    
+    private void dispatch( AABB a, AABB b, ContactListener listener ) {
+        
+        Object oa = a.referencedObject;
+        Object ob = b.referencedObject;
+        
+        if ( oa instanceof Hero ) {
+            dispatchHero( (Hero) oa, b, listener );
+        } else if ( ob instanceof Hero ) {
+            dispatchHero( (Hero) ob, a, listener );
+        }
+        
+    }
+    
+    private void dispatchHero( Hero hero, AABB other, ContactListener listener ) {
+        
+        Object o = other.referencedObject;
+        
+        if ( o instanceof TileGrid ) {
+            listener.heroSolid( hero, other );
+        } else if ( o instanceof BaseEnemy e ) {
+            listener.heroEnemy( hero, e );
+        } else if ( o instanceof Coin c ) {
+            listener.heroCoin( hero, c );
+        }
+        
+    }
+
+    /**
+     * @return how many contacts were found in the last run.
+     */
+    public int getPairCount() {
+        return pairCount;
+    }
+    
+}
@@ -0,0 +1,35 @@
+package br.com.davidbuzatto.nonameplat.collision;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.nonameplat.entities.characters.BaseEnemy;
+import br.com.davidbuzatto.nonameplat.entities.characters.Hero;
+import br.com.davidbuzatto.nonameplat.entities.items.Coin;
+
+/**
+ * Resolves each contact with the collision response of the entities.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class EntityContactResolver implements ContactListener {
+
+    @Override
+    public void heroSolid( Hero hero, AABB solid ) {
+        hero.resolveCollisionSolid( solid );
+    }
+
+    @Override
+    public void heroEnemy( Hero hero, BaseEnemy enemy ) {
+        hero.resolveCollisionEnemy( enemy );
+    }
+
+    @Override
+    public void heroCoin( Hero hero, Coin coin ) {
+        hero.resolveCollisionCoin( coin );
+    }
+
+    @Override
+    public void enemySolid( BaseEnemy enemy, AABB solid ) {
+        enemy.resolveCollisionSolid( solid );
+    }
+    
+}
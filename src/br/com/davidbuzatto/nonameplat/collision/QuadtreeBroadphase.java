@@ -0,0 +1,249 @@
+package br.com.davidbuzatto.nonameplat.collision;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.jsge.collision.aabb.AABBQuadtree;
+import br.com.davidbuzatto.jsge.collision.aabb.AABBQuadtreeNode;
+import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Broadphase backed by the engine AABBQuadtree.
+ * 
+ * The tree is rebuilt when AABBs are inserted or removed and updated once
+ * after AABBs move, right before the next query or pair pass. Node bounds
+ * are derived while walking it: the root covers the whole tree and each
+ * node is split in four equal quadrants.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class QuadtreeBroadphase implements Broadphase {
+    
+    private final int size;
+    private final int maxDepth;
+    
+    private final List<AABB> aabbs;
+    private final Map<AABB, Integer> ids;
+    private int nextId;
+    
+    private AABBQuadtree quadtree;
+    private boolean rebuild;
+    private boolean moved;
+    
+    // reusable sets for deduplication, the pairs as primitive keys so a
+    // pair pass doesn't box
+    private final Set<AABB> seen;
+    private final PairSet seenPairs;
+    
+    public QuadtreeBroadphase( double worldWidth, double worldHeight, int maxDepth ) {
+        this.size = (int) Math.max( worldWidth, worldHeight );
+        this.maxDepth = maxDepth;
+        this.aabbs = new ArrayList<>();
+        this.ids = new IdentityHashMap<>();
+        this.seen = Collections.newSetFromMap( new IdentityHashMap<>() );
+        this.seenPairs = new PairSet();
+        this.rebuild = true;
+    }
+
+    @Override
+    public void insert( AABB aabb ) {
+        if ( !ids.containsKey( aabb ) ) {
+            ids.put( aabb, nextId++ );
+            aabbs.add( aabb );
+            rebuild = true;
+        }
+    }
+
+    @Override
+    public void remove( AABB aabb ) {
+        if ( ids.remove( aabb ) != null ) {
+            for ( int i = 0; i < aabbs.size(); i++ ) {
+                if ( aabbs.get( i ) == aabb ) {
+                    aabbs.remove( i );
+                    break;
+                }
+            }
+            rebuild = true;
+        }
+    }
+
+    @Override
+    public void move( AABB aabb ) {
+        if ( ids.containsKey( aabb ) ) {
+            moved = true;
+        }
+    }
+
+    @Override
+    public boolean contains( AABB aabb ) {
+        return ids.containsKey( aabb );
+    }
+
+    @Override
+    public int size() {
+        return aabbs.size();
+    }
+
+    @Override
+    public void clear() {
+        aabbs.clear();
+        ids.clear();
+        rebuild = true;
+    }
+    
+    private void refresh() {
+        if ( rebuild ) {
+            quadtree = new AABBQuadtree( aabbs, size, size, maxDepth );
+            rebuild = false;
+            moved = false;
+        } else if ( moved ) {
+            quadtree.update();
+            moved = false;
+        }
+    }
+
+    @Override
+    public void query( double x1, double y1, double x2, double y2, List<AABB> result ) {
+        refresh();
+        seen.clear();
+        queryNode( quadtree.getRoot(), 0, 0, size, size, x1, y1, x2, y2, result );
+    }
+    
+    private void queryNode( AABBQuadtreeNode node, double nx1, double ny1, double nx2, double ny2, 
+                            double x1, double y1, double x2, double y2, List<AABB> result ) {
+        
+        if ( node == null || node.depth >= maxDepth || nx1 > x2 || nx2 < x1 || ny1 > y2 || ny2 < y1 ) {
+            return;
+        }
+        
+        for ( int i = 0; i < node.aabbs.size(); i++ ) {
+            AABB a = node.aabbs.get( i );
+            if ( a.x1 <= x2 && a.x2 >= x1 && a.y1 <= y2 && a.y2 >= y1 && seen.add( a ) ) {
+                result.add( a );
+            }
+        }
+        
+        double mx = ( nx1 + nx2 ) / 2;
+        double my = ( ny1 + ny2 ) / 2;
+        
+        queryNode( node.nw, nx1, ny1, mx, my, x1, y1, x2, y2, result );
+        queryNode( node.ne, mx, ny1, nx2, my, x1, y1, x2, y2, result );
+        queryNode( node.sw, nx1, my, mx, ny2, x1, y1, x2, y2, result );
+        queryNode( node.se, mx, my, nx2, ny2, x1, y1, x2, y2, result );
+        
+    }
+
+    /**
+     * Tests the pairs inside each node. An AABB may be stored in more than
+     * one node, so pairs already visited are skipped.
+     */
+    @Override
+    public void forEachPair( PairVisitor visitor ) {
+        refresh();
+        seenPairs.clear();
+        pairsNode( quadtree.getRoot(), visitor );
+    }
+    
+    private void pairsNode( AABBQuadtreeNode node, PairVisitor visitor ) {
+        
+        if ( node == null || node.depth >= maxDepth ) {
+            return;
+        }
+        
+        int count = node.aabbs.size();
+        
+        for ( int i = 0; i < count; i++ ) {
+            AABB a = node.aabbs.get( i );
+            for ( int j = i + 1; j < count; j++ ) {
+                AABB b = node.aabbs.get( j );
+                if ( Broadphase.overlaps( a, b ) ) {
+                    Integer ia = ids.get( a );
+                    Integer ib = ids.get( b );
+                    if ( ia != null && ib != null && 
+                         seenPairs.add( ( (long) Math.min( ia, ib ) << 32 ) | Math.max( ia, ib ) ) ) {
+                        visitor.visit( a, b );
+                    }
+                }
+            }
+        }
+        
+        pairsNode( node.nw, visitor );
+        pairsNode( node.ne, visitor );
+        pairsNode( node.sw, visitor );
+        pairsNode( node.se, visitor );
+        
+    }
+    
+    /**
+     * A set of pair keys with open addressing: the keys live in a plain
+     * long array, 0 is never a key (the ids of a pair differ) and marks the
+     * empty slots. Grows when half full and is never shrunk.
+     */
+    private static class PairSet {
+        
+        private long[] keys = new long[256];
+        private int count;
+        
+        boolean add( long key ) {
+            
+            if ( ( count + 1 ) * 2 > keys.length ) {
+                grow();
+            }
+            
+            int mask = keys.length - 1;
+            int i = slot( key, mask );
+            
+            while ( keys[i] != 0 ) {
+                if ( keys[i] == key ) {
+                    return false;
+                }
+                i = ( i + 1 ) & mask;
+            }
+            
+            keys[i] = key;
+            count++;
+            return true;
+            
+        }
+        
+        void clear() {
+            if ( count > 0 ) {
+                Arrays.fill( keys, 0 );
+                count = 0;
+            }
+        }
+        
+        private void grow() {
+            
+            long[] old = keys;
+            keys = new long[old.length * 2];
+            count = 0;
+            
+            for ( long key : old ) {
+                if ( key != 0 ) {
+                    add( key );
+                }
+            }
+            
+        }
+        
+        private static int slot( long key, int mask ) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) ( h ^ ( h >>> 32 ) ) & mask;
+        }
+        
+    }
+
+    @Override
+    public void draw( EngineFrame engine, double x, double y, double scale, Color color ) {
+        refresh();
+        quadtree.draw( engine, x, y, scale );
+    }
+    
+}
@@ -0,0 +1,248 @@
+package br.com.davidbuzatto.nonameplat.collision;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A uniform spatial hash of AABBs.
+ * 
+ * Each AABB is stored in the buckets of the cells it covers. Moving an
+ * AABB only touches the buckets when the range of cells it covers
+ * changes, so entities that stay inside their cells cost nothing.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class SpatialHash implements Broadphase {
+    
+    private static class Entry {
+        
+        final AABB aabb;
+        final int id;
+        int index;
+        int c1;
+        int l1;
+        int c2;
+        int l2;
+        
+        Entry( AABB aabb, int id ) {
+            this.aabb = aabb;
+            this.id = id;
+        }
+        
+    }
+    
+    private final double cellSize;
+    private final int mask;
+    private final List<Entry>[] buckets;
+    private final Map<AABB, Entry> entries;
+    private final List<Entry> ordered;
+    private int nextId;
+    
+    @SuppressWarnings( "unchecked" )
+    public SpatialHash( double cellSize, int bucketCount ) {
+        
+        // bucket count rounded up to a power of two
+        int size = Integer.highestOneBit( Math.max( bucketCount - 1, 1 ) ) << 1;
+        
+        this.cellSize = cellSize;
+        this.mask = size - 1;
+        this.buckets = (List<Entry>[]) new List<?>[size];
+        this.entries = new IdentityHashMap<>();
+        this.ordered = new ArrayList<>();
+        
+        for ( int i = 0; i < size; i++ ) {
+            buckets[i] = new ArrayList<>( 4 );
+        }
+        
+    }
+    
+    public SpatialHash( double cellSize ) {
+        this( cellSize, 1024 );
+    }
+    
+    @Override
+    public void insert( AABB aabb ) {
+        
+        if ( entries.containsKey( aabb ) ) {
+            return;
+        }
+        
+        Entry e = new Entry( aabb, nextId++ );
+        setRange( e );
+        addToBuckets( e );
+        entries.put( aabb, e );
+        e.index = ordered.size();
+        ordered.add( e );
+        
+    }
+    
+    @Override
+    public void remove( AABB aabb ) {
+        Entry e = entries.remove( aabb );
+        if ( e != null ) {
+            removeFromBuckets( e );
+            // swap with the last one to remove in constant time
+            Entry last = ordered.remove( ordered.size() - 1 );
+            if ( last != e ) {
+                last.index = e.index;
+                ordered.set( e.index, last );
+            }
+        }
+    }
+    
+    @Override
+    public void move( AABB aabb ) {
+        
+        Entry e = entries.get( aabb );
+        
+        if ( e == null ) {
+            return;
+        }
+        
+        int c1 = cell( aabb.x1 );
+        int l1 = cell( aabb.y1 );
+        int c2 = cell( aabb.x2 );
+        int l2 = cell( aabb.y2 );
+        
+        if ( c1 != e.c1 || l1 != e.l1 || c2 != e.c2 || l2 != e.l2 ) {
+            removeFromBuckets( e );
+            setRange( e );
+            addToBuckets( e );
+        }
+        
+    }
+    
+    @Override
+    public boolean contains( AABB aabb ) {
+        return entries.containsKey( aabb );
+    }
+    
+    @Override
+    public void clear() {
+        for ( List<Entry> bucket : buckets ) {
+            bucket.clear();
+        }
+        entries.clear();
+        ordered.clear();
+    }
+    
+    @Override
+    public int size() {
+        return entries.size();
+    }
+    
+    @Override
+    public void query( double x1, double y1, double x2, double y2, List<AABB> result ) {
+        
+        int qc1 = cell( x1 );
+        int ql1 = cell( y1 );
+        int qc2 = cell( x2 );
+        int ql2 = cell( y2 );
+        
+        for ( int line = ql1; line <= ql2; line++ ) {
+            for ( int column = qc1; column <= qc2; column++ ) {
+                
+                List<Entry> bucket = buckets[hash( column, line )];
+                
+                for ( int i = 0; i < bucket.size(); i++ ) {
+                    
+                    Entry e = bucket.get( i );
+                    
+                    // reported only at the first cell shared with the region
+                    if ( e.c1 <= qc2 && e.c2 >= qc1 && e.l1 <= ql2 && e.l2 >= ql1 &&
+                         column == Math.max( qc1, e.c1 ) && line == Math.max( ql1, e.l1 ) ) {
+                        result.add( e.aabb );
+                    }
+                    
+                }
+                
+            }
+        }
+        
+    }
+    
+    /**
+     * Each pair is visited at the first cell the two entries share.
+     */
+    @Override
+    public void forEachPair( PairVisitor visitor ) {
+        
+        for ( int k = 0; k < ordered.size(); k++ ) {
+            Entry e = ordered.get( k );
+            for ( int line = e.l1; line <= e.l2; line++ ) {
+                for ( int column = e.c1; column <= e.c2; column++ ) {
+                    
+                    List<Entry> bucket = buckets[hash( column, line )];
+                    
+                    for ( int i = 0; i < bucket.size(); i++ ) {
+                        Entry f = bucket.get( i );
+                        if ( f.id > e.id && 
+                             f.c1 <= e.c2 && f.c2 >= e.c1 && f.l1 <= e.l2 && f.l2 >= e.l1 &&
+                             column == Math.max( e.c1, f.c1 ) && line == Math.max( e.l1, f.l1 ) &&
+                             Broadphase.overlaps( e.aabb, f.aabb ) ) {
+                            visitor.visit( e.aabb, f.aabb );
+                        }
+                    }
+                    
+                }
+            }
+        }
+        
+    }
+    
+    @Override
+    public void draw( EngineFrame engine, double x, double y, double scale, Color color ) {
+        for ( Entry e : ordered ) {
+            engine.drawRectangle( 
+                x + e.aabb.x1 * scale, y + e.aabb.y1 * scale, 
+                ( e.aabb.x2 - e.aabb.x1 ) * scale, ( e.aabb.y2 - e.aabb.y1 ) * scale, 
+                color
+            );
+        }
+    }
+    
+    private void setRange( Entry e ) {
+        e.c1 = cell( e.aabb.x1 );
+        e.l1 = cell( e.aabb.y1 );
+        e.c2 = cell( e.aabb.x2 );
+        e.l2 = cell( e.aabb.y2 );
+    }
+    
+    private void addToBuckets( Entry e ) {
+        for ( int line = e.l1; line <= e.l2; line++ ) {
+            for ( int column = e.c1; column <= e.c2; column++ ) {
+                List<Entry> bucket = buckets[hash( column, line )];
+                // two cells of the same entry may share a bucket
+                if ( !bucket.contains( e ) ) {
+                    bucket.add( e );
+                }
+            }
+        }
+    }
+    
+    private void removeFromBuckets( Entry e ) {
+        for ( int line = e.l1; line <= e.l2; line++ ) {
+            for ( int column = e.c1; column <= e.c2; column++ ) {
+                buckets[hash( column, line )].remove( e );
+            }
+        }
+    }
+    
+    private int cell( double v ) {
+        return (int) Math.floor( v / cellSize );
+    }
+    
+    private int hash( int column, int line ) {
+        return ( column * 73856093 ^ line * 19349663 ) & mask;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+    
+}
@@ -0,0 +1,186 @@
+package br.com.davidbuzatto.nonameplat.collision;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
+import java.awt.Color;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Sweep and prune broadphase on the x axis.
+ * 
+ * AABBs are kept sorted by their left side. Entities move little between
+ * frames, so the order is restored with an insertion sort that runs in
+ * almost linear time. Pairs are found sweeping the sorted array and
+ * stopping as soon as the next AABB starts after the current one ends.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class SweepAndPrune implements Broadphase {
+    
+    private AABB[] sorted;
+    private int count;
+    private final Set<AABB> members;
+    
+    private boolean unsorted;
+    private double maxWidth;
+    
+    public SweepAndPrune() {
+        this.sorted = new AABB[64];
+        this.members = Collections.newSetFromMap( new IdentityHashMap<>() );
+    }
+
+    @Override
+    public void insert( AABB aabb ) {
+        
+        if ( !members.add( aabb ) ) {
+            return;
+        }
+        
+        if ( count == sorted.length ) {
+            AABB[] newSorted = new AABB[count * 2];
+            System.arraycopy( sorted, 0, newSorted, 0, count );
+            sorted = newSorted;
+        }
+        
+        sorted[count++] = aabb;
+        unsorted = true;
+        
+    }
+
+    @Override
+    public void remove( AABB aabb ) {
+        
+        if ( !members.remove( aabb ) ) {
+            return;
+        }
+        
+        for ( int i = 0; i < count; i++ ) {
+            if ( sorted[i] == aabb ) {
+                System.arraycopy( sorted, i + 1, sorted, i, count - i - 1 );
+                sorted[--count] = null;
+                break;
+            }
+        }
+        
+    }
+
+    @Override
+    public void move( AABB aabb ) {
+        unsorted = true;
+    }
+
+    @Override
+    public boolean contains( AABB aabb ) {
+        return members.contains( aabb );
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public void clear() {
+        for ( int i = 0; i < count; i++ ) {
+            sorted[i] = null;
+        }
+        count = 0;
+        members.clear();
+    }
+    
+    private void sort() {
+        
+        if ( !unsorted ) {
+            return;
+        }
+        
+        maxWidth = 0;
+        
+        for ( int i = 0; i < count; i++ ) {
+            
+            AABB a = sorted[i];
+            int j = i - 1;
+            
+            while ( j >= 0 && sorted[j].x1 > a.x1 ) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = a;
+            
+            if ( a.x2 - a.x1 > maxWidth ) {
+                maxWidth = a.x2 - a.x1;
+            }
+            
+        }
+        
+        unsorted = false;
+        
+    }
+    
+    /**
+     * @return the index of the first AABB whose left side is at or after x.
+     */
+    private int lowerBound( double x ) {
+        int low = 0;
+        int high = count;
+        while ( low < high ) {
+            int mid = ( low + high ) >>> 1;
+            if ( sorted[mid].x1 < x ) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public void query( double x1, double y1, double x2, double y2, List<AABB> result ) {
+        
+        sort();
+        
+        // nothing that starts before x1 - maxWidth can reach x1
+        for ( int i = lowerBound( x1 - maxWidth ); i < count; i++ ) {
+            AABB a = sorted[i];
+            if ( a.x1 > x2 ) {
+                break;
+            }
+            if ( a.x2 >= x1 && a.y1 <= y2 && a.y2 >= y1 ) {
+                result.add( a );
+            }
+        }
+        
+    }
+
+    @Override
+    public void forEachPair( PairVisitor visitor ) {
+        
+        sort();
+        
+        for ( int i = 0; i < count; i++ ) {
+            AABB a = sorted[i];
+            for ( int j = i + 1; j < count; j++ ) {
+                AABB b = sorted[j];
+                if ( b.x1 > a.x2 ) {
+                    break;
+                }
+                if ( a.y1 <= b.y2 && a.y2 >= b.y1 ) {
+                    visitor.visit( a, b );
+                }
+            }
+        }
+        
+    }
+
+    @Override
+    public void draw( EngineFrame engine, double x, double y, double scale, Color color ) {
+        for ( int i = 0; i < count; i++ ) {
+            AABB a = sorted[i];
+            engine.drawRectangle( x + a.x1 * scale, y + a.y1 * scale, ( a.x2 - a.x1 ) * scale, ( a.y2 - a.y1 ) * scale, color );
+        }
+    }
+    
+}
@@ -0,0 +1,111 @@
+package br.com.davidbuzatto.nonameplat.entities;
+
+import br.com.davidbuzatto.jsge.collision.CollisionUtils;
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
+import br.com.davidbuzatto.jsge.geom.Rectangle;
+import br.com.davidbuzatto.nonameplat.GameWorld;
+import br.com.davidbuzatto.nonameplat.entities.Entity.State;
+
+/**
+ * The four collision probes of a character (left, right, up and down),
+ * placed from its position and size in the store whenever they are
+ * tested, so they never need to be kept up to date.
+ * 
+ * Each character has its own instance, since the probe rectangle is
+ * reused between tests and characters are updated in parallel.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class CollisionProbes {
+    
+    public static final double WIDTH_SML = 10;
+    public static final double WIDTH_BIG = 20;
+    
+    private final Rectangle probe;
+    
+    public CollisionProbes() {
+        this.probe = new Rectangle();
+    }
+    
+    /**
+     * Tests the probes of an entity against a bounding box, in the order
+     * down, left, right and up.
+     */
+    public CollisionType check( Entity entity, AABB other ) {
+        
+        if ( CollisionUtils.checkCollisionRectangleAABB( place( entity, CollisionType.DOWN ), other ) ) {
+            return CollisionType.DOWN;
+        }
+        
+        if ( CollisionUtils.checkCollisionRectangleAABB( place( entity, CollisionType.LEFT ), other ) ) {
+            return CollisionType.LEFT;
+        }
+        
+        if ( CollisionUtils.checkCollisionRectangleAABB( place( entity, CollisionType.RIGHT ), other ) ) {
+            return CollisionType.RIGHT;
+        }
+        
+        if ( CollisionUtils.checkCollisionRectangleAABB( place( entity, CollisionType.UP ), other ) ) {
+            return CollisionType.UP;
+        }
+        
+        return CollisionType.NONE;
+        
+    }
+    
+    public void draw( EngineFrame e, Entity entity, State lookingState, State yState ) {
+        
+        e.fillRectangle( place( entity, CollisionType.LEFT ), lookingState == State.LOOKING_LEFT ? GameWorld.CP_COLOR1 : GameWorld.CP_COLOR2 );
+        e.fillRectangle( place( entity, CollisionType.RIGHT ), lookingState == State.LOOKING_RIGHT ? GameWorld.CP_COLOR1 : GameWorld.CP_COLOR2 );
+        e.fillRectangle( place( entity, CollisionType.UP ), yState == State.JUMPING ? GameWorld.CP_COLOR1 : GameWorld.CP_COLOR2 );
+        if ( yState == State.ON_GROUND ) {
+            e.fillRectangle( place( entity, CollisionType.DOWN ), GameWorld.CP_COLOR3 );
+        } else {
+            e.fillRectangle( place( entity, CollisionType.DOWN ), yState == State.FALLING ? GameWorld.CP_COLOR1 : GameWorld.CP_COLOR2 );
+        }
+        
+    }
+    
+    private Rectangle place( Entity entity, CollisionType side ) {
+        
+        EntityStore s = entity.store;
+        int i = entity.slot;
+        
+        double x = s.x[i];
+        double y = s.y[i];
+        double w = s.width[i];
+        double h = s.height[i];
+        
+        switch ( side ) {
+            case LEFT -> {
+                probe.x = x;
+                probe.y = y + h / 2 - WIDTH_BIG / 2;
+                probe.width = WIDTH_SML;
+                probe.height = WIDTH_BIG;
+            }
+            case RIGHT -> {
+                probe.x = x + w - WIDTH_SML;
+                probe.y = y + h / 2 - WIDTH_BIG / 2;
+                probe.width = WIDTH_SML;
+                probe.height = WIDTH_BIG;
+            }
+            case UP -> {
+                probe.x = x + w / 2 - WIDTH_BIG / 2;
+                probe.y = y;
+                probe.width = WIDTH_BIG;
+                probe.height = WIDTH_SML;
+            }
+            default -> {
+                probe.x = x + w / 2 - WIDTH_BIG / 2;
+                probe.y = y + h - WIDTH_SML;
+                probe.width = WIDTH_BIG;
+                probe.height = WIDTH_SML;
+            }
+        }
+        
+        return probe;
+        
+    }
+    
+}
@@ -3,6 +3,10 @@ package br.com.davidbuzatto.nonameplat.entities;
 /**
  * Game Entity.
  * 
+ * A view over a slot of an EntityStore, where its position, velocity and
+ * size live. Other objects should keep its handle, not the entity, when
+ * it may be discarded before them.
+ * 
  * @author Prof. Dr. David Buzatto
  */
 public abstract class Entity {
@@ -39,21 +43,111 @@ public abstract class Entity {
         
     }
     
-    private static int idCounter;
-    protected int id;
+    // index and generation in the registry of the store
+    protected long handle;
+    
+    // where the physics fields of the entity are
+    protected final EntityStore store;
+    protected int slot;
     
-    public Entity() {
-        id = idCounter++;
+    public Entity( EntityStore store, double x, double y, double width, double height ) {
+        this.store = store;
+        this.slot = store.add( this, x, y, width, height );
+        this.handle = store.getRegistry().register( this );
+    }
+    
+    /**
+     * Gives the slot of the entity back to its store and invalidates its
+     * handle. The entity must not be used after that.
+     */
+    public void release() {
+        store.getRegistry().unregister( handle );
+        store.remove( this );
+        slot = -1;
     }
 
-    public int getId() {
-        return id;
+    /**
+     * Gives a released entity a new slot and handle, standing still at
+     * (x, y), so it can be used again (see EntityPool).
+     */
+    protected void acquire( double x, double y, double width, double height ) {
+        slot = store.add( this, x, y, width, height );
+        handle = store.getRegistry().register( this );
+    }
+
+    /**
+     * Releases the assets used by the entity, when its world is disposed.
+     */
+    public void dispose() {
+    }
+
+    public boolean isReleased() {
+        return slot < 0;
+    }
+
+    /**
+     * @return the handle of the entity, valid until it is released.
+     */
+    public long getHandle() {
+        return handle;
+    }
+    
+    /**
+     * @return the slot of the entity in its store. Changes when other
+     * entities are released.
+     */
+    public int getSlot() {
+        return slot;
+    }
+    
+    public EntityStore getStore() {
+        return store;
+    }
+    
+    public double getX() {
+        return store.x[slot];
+    }
+    
+    public double getY() {
+        return store.y[slot];
+    }
+    
+    public double getPrevX() {
+        return store.prevX[slot];
+    }
+    
+    public double getPrevY() {
+        return store.prevY[slot];
+    }
+    
+    public double getRenderX() {
+        return store.renderX[slot];
+    }
+    
+    public double getRenderY() {
+        return store.renderY[slot];
+    }
+    
+    public double getVelX() {
+        return store.velX[slot];
+    }
+    
+    public double getVelY() {
+        return store.velY[slot];
+    }
+    
+    public double getWidth() {
+        return store.width[slot];
+    }
+    
+    public double getHeight() {
+        return store.height[slot];
     }
 
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 17 * hash + this.id;
+        hash = 17 * hash + Long.hashCode( this.handle );
         return hash;
     }
 
@@ -69,7 +163,7 @@ public abstract class Entity {
             return false;
         }
         final Entity other = (Entity) obj;
-        return this.id == other.id;
+        return this.handle == other.handle;
     }
     
 }
@@ -0,0 +1,153 @@
+package br.com.davidbuzatto.nonameplat.entities;
+
+import java.util.Arrays;
+
+/**
+ * Keeps released entities of one type to be used again, so spawning does
+ * not create entities, their animations and AABBs while playing.
+ * 
+ * Entities waiting in the pool hold no slot in their store and no handle.
+ * obtain takes one (creating it only when the pool is empty) and resets
+ * it, free releases it and gives it back. The pool counts the entities in
+ * use and their peak (the high-water mark), to size it for the heaviest
+ * sections of a level.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class EntityPool<T extends Entity & Poolable> {
+    
+    /**
+     * Creates the entities of a pool.
+     */
+    @FunctionalInterface
+    public static interface Factory<T extends Entity & Poolable> {
+        T create( EntityPool<T> pool );
+    }
+    
+    private final String name;
+    private final Factory<T> factory;
+    
+    // as a stack
+    private T[] free;
+    private int freeCount;
+    
+    private int inUse;
+    private int highWaterMark;
+    private int created;
+    private int misses;
+    
+    /**
+     * @param capacity how many entities are created beforehand.
+     */
+    @SuppressWarnings( "unchecked" )
+    public EntityPool( String name, int capacity, Factory<T> factory ) {
+        
+        this.name = name;
+        this.factory = factory;
+        this.free = (T[]) new Entity[Math.max( capacity, 1 )];
+        
+        for ( int i = 0; i < capacity; i++ ) {
+            T e = factory.create( this );
+            e.release();
+            free[freeCount++] = e;
+            created++;
+        }
+        
+    }
+    
+    /**
+     * @return an entity standing at (x, y).
+     */
+    public T obtain( double x, double y ) {
+        
+        T e;
+        
+        if ( freeCount > 0 ) {
+            e = free[--freeCount];
+            free[freeCount] = null;
+            e.reset( x, y );
+        } else {
+            e = factory.create( this );
+            e.release();
+            e.reset( x, y );
+            created++;
+            misses++;
+        }
+        
+        inUse++;
+        highWaterMark = Math.max( highWaterMark, inUse );
+        
+        return e;
+        
+    }
+    
+    /**
+     * Releases an entity obtained from this pool and keeps it.
+     */
+    public void free( T e ) {
+        
+        if ( !e.isReleased() ) {
+            e.release();
+        }
+        
+        if ( freeCount == free.length ) {
+            free = Arrays.copyOf( free, free.length * 2 );
+        }
+        
+        free[freeCount++] = e;
+        inUse--;
+        
+    }
+    
+    /**
+     * Disposes the entities waiting in the pool, which must not be used
+     * after that. Entities still in use are not disposed.
+     */
+    public void dispose() {
+        for ( int i = 0; i < freeCount; i++ ) {
+            free[i].dispose();
+            free[i] = null;
+        }
+        freeCount = 0;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * @return how many entities are waiting in the pool.
+     */
+    public int getFree() {
+        return freeCount;
+    }
+    
+    public int getInUse() {
+        return inUse;
+    }
+    
+    /**
+     * @return the largest number of entities in use at the same time.
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+    
+    public int getCreated() {
+        return created;
+    }
+    
+    /**
+     * @return how many times the pool was empty and an entity was created.
+     */
+    public int getMisses() {
+        return misses;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format( "%s: %d in use, peak %d, %d free, %d created (%d on demand)", 
+                name, inUse, highWaterMark, freeCount, created, misses );
+    }
+    
+}
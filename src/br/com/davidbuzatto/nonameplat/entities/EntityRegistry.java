@@ -0,0 +1,145 @@
+package br.com.davidbuzatto.nonameplat.entities;
+
+import java.util.Arrays;
+
+/**
+ * Gives handles to entities and finds entities by handle.
+ *
+ * A handle packs an index into the registry table (low 32 bits) and the
+ * generation of that index (high 32 bits). When an entity is unregistered
+ * its index goes to a free list and its generation is incremented, so the
+ * index is reused by the next entity while the old handle stops resolving.
+ * The table only grows up to the largest number of entities alive at the
+ * same time, no matter how many are created during a session.
+ *
+ * Handles are meant to be kept instead of references when an entity
+ * points to another one that may be discarded: get returns null for a
+ * stale handle.
+ *
+ * A registry belongs to a single world and is not thread safe.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class EntityRegistry {
+
+    /**
+     * A handle that never resolves to an entity.
+     */
+    public static final long NO_HANDLE = 0;
+
+    private Entity[] entities;
+    private int[] generations;
+
+    // indexes ready to be reused, as a stack
+    private int[] free;
+    private int freeCount;
+
+    // indexes ever used
+    private int used;
+    private int size;
+
+    public EntityRegistry() {
+        this( 64 );
+    }
+
+    public EntityRegistry( int capacity ) {
+        capacity = Math.max( capacity, 1 );
+        this.entities = new Entity[capacity];
+        this.generations = new int[capacity];
+        this.free = new int[capacity];
+    }
+
+    /**
+     * @return the handle of the entity.
+     */
+    long register( Entity entity ) {
+
+        int index;
+
+        if ( freeCount > 0 ) {
+            index = free[--freeCount];
+        } else {
+            if ( used == entities.length ) {
+                grow();
+            }
+            index = used++;
+            generations[index] = 1;
+        }
+
+        entities[index] = entity;
+        size++;
+
+        return handle( index, generations[index] );
+
+    }
+
+    /**
+     * Invalidates the handle of an entity and frees its index.
+     */
+    void unregister( long handle ) {
+
+        if ( !isValid( handle ) ) {
+            return;
+        }
+
+        int index = index( handle );
+        entities[index] = null;
+
+        // generation 0 is skipped, so NO_HANDLE never becomes valid
+        int generation = generations[index] + 1;
+        generations[index] = generation == 0 ? 1 : generation;
+
+        free[freeCount++] = index;
+        size--;
+
+    }
+
+    /**
+     * @return the entity of the handle or null if it was unregistered.
+     */
+    public Entity get( long handle ) {
+        return isValid( handle ) ? entities[index( handle )] : null;
+    }
+
+    public boolean isValid( long handle ) {
+        int index = index( handle );
+        return index >= 0 && index < used &&
+               generations[index] == generation( handle ) &&
+               entities[index] != null;
+    }
+
+    private void grow() {
+        int capacity = entities.length * 2;
+        entities = Arrays.copyOf( entities, capacity );
+        generations = Arrays.copyOf( generations, capacity );
+        free = Arrays.copyOf( free, capacity );
+    }
+
+    /**
+     * @return how many entities are registered.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return how many indexes were used so far, the peak of entities
+     * registered at the same time.
+     */
+    public int getUsed() {
+        return used;
+    }
+
+    public static int index( long handle ) {
+        return (int) handle;
+    }
+
+    public static int generation( long handle ) {
+        return (int) ( handle >>> 32 );
+    }
+
+    private static long handle( int index, int generation ) {
+        return ( (long) generation << 32 ) | ( index & 0xFFFFFFFFL );
+    }
+
+}
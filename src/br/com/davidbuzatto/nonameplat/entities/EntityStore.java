@@ -0,0 +1,168 @@
+package br.com.davidbuzatto.nonameplat.entities;
+
+import java.util.Arrays;
+
+/**
+ * The physics fields of entities, stored in columns.
+ * 
+ * Each entity owns a slot and its position, previous position, drawing
+ * position, velocity and size are kept in one primitive array per field,
+ * indexed by slot, instead of in Vector2 objects scattered through the
+ * heap. The slots are dense: removing an entity moves the last one into
+ * its slot, so loops over a store walk the arrays in order.
+ * 
+ * The arrays are replaced when the store grows, so they must be read from
+ * the fields every time, never kept. Since slots move, entities that must
+ * be found later are found by their handle, through the registry shared
+ * by the stores of a world.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class EntityStore {
+    
+    public double[] x;
+    public double[] y;
+    public double[] prevX;
+    public double[] prevY;
+    public double[] renderX;
+    public double[] renderY;
+    public double[] velX;
+    public double[] velY;
+    public double[] width;
+    public double[] height;
+    
+    private final EntityRegistry registry;
+    private Entity[] entities;
+    private int size;
+    
+    public EntityStore() {
+        this( new EntityRegistry(), 64 );
+    }
+    
+    public EntityStore( EntityRegistry registry, int capacity ) {
+        
+        this.registry = registry;
+        capacity = Math.max( capacity, 1 );
+        
+        x = new double[capacity];
+        y = new double[capacity];
+        prevX = new double[capacity];
+        prevY = new double[capacity];
+        renderX = new double[capacity];
+        renderY = new double[capacity];
+        velX = new double[capacity];
+        velY = new double[capacity];
+        width = new double[capacity];
+        height = new double[capacity];
+        entities = new Entity[capacity];
+        
+    }
+    
+    /**
+     * Gives a slot to an entity, standing still at (x, y).
+     * 
+     * @return the slot.
+     */
+    int add( Entity entity, double x, double y, double width, double height ) {
+        
+        if ( size == entities.length ) {
+            grow();
+        }
+        
+        int slot = size++;
+        
+        this.x[slot] = x;
+        this.y[slot] = y;
+        prevX[slot] = x;
+        prevY[slot] = y;
+        renderX[slot] = x;
+        renderY[slot] = y;
+        velX[slot] = 0;
+        velY[slot] = 0;
+        this.width[slot] = width;
+        this.height[slot] = height;
+        entities[slot] = entity;
+        
+        return slot;
+        
+    }
+    
+    /**
+     * Frees the slot of an entity, moving the last entity into it.
+     */
+    void remove( Entity entity ) {
+        
+        int slot = entity.slot;
+        int last = --size;
+        
+        if ( slot != last ) {
+            
+            x[slot] = x[last];
+            y[slot] = y[last];
+            prevX[slot] = prevX[last];
+            prevY[slot] = prevY[last];
+            renderX[slot] = renderX[last];
+            renderY[slot] = renderY[last];
+            velX[slot] = velX[last];
+            velY[slot] = velY[last];
+            width[slot] = width[last];
+            height[slot] = height[last];
+            
+            Entity moved = entities[last];
+            entities[slot] = moved;
+            moved.slot = slot;
+            
+        }
+        
+        entities[last] = null;
+        
+    }
+    
+    /**
+     * Computes the drawing position of every entity, between the last two
+     * simulation steps.
+     * 
+     * @param alpha how far (from 0 to 1) into the next step the frame is.
+     */
+    public void interpolate( double alpha ) {
+        for ( int i = 0; i < size; i++ ) {
+            renderX[i] = prevX[i] + ( x[i] - prevX[i] ) * alpha;
+            renderY[i] = prevY[i] + ( y[i] - prevY[i] ) * alpha;
+        }
+    }
+    
+    private void grow() {
+        
+        int capacity = entities.length * 2;
+        
+        x = Arrays.copyOf( x, capacity );
+        y = Arrays.copyOf( y, capacity );
+        prevX = Arrays.copyOf( prevX, capacity );
+        prevY = Arrays.copyOf( prevY, capacity );
+        renderX = Arrays.copyOf( renderX, capacity );
+        renderY = Arrays.copyOf( renderY, capacity );
+        velX = Arrays.copyOf( velX, capacity );
+        velY = Arrays.copyOf( velY, capacity );
+        width = Arrays.copyOf( width, capacity );
+        height = Arrays.copyOf( height, capacity );
+        entities = Arrays.copyOf( entities, capacity );
+        
+    }
+    
+    public EntityRegistry getRegistry() {
+        return registry;
+    }
+    
+    public Entity getEntity( int slot ) {
+        return entities[slot];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public int getCapacity() {
+        return entities.length;
+    }
+    
+}
@@ -0,0 +1,16 @@
+package br.com.davidbuzatto.nonameplat.entities;
+
+/**
+ * An entity that can be kept in an EntityPool and used again.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public interface Poolable {
+    
+    /**
+     * Prepares a released entity to be used again, as if it was just
+     * created at (x, y).
+     */
+    public void reset( double x, double y );
+    
+}
@@ -0,0 +1,99 @@
+package br.com.davidbuzatto.nonameplat.entities.characters;
+
+import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
+
+/**
+ * The commands given to the hero, sampled once per rendered frame.
+ * 
+ * A frame may run several simulation steps (or none), so held keys are
+ * seen by every step while a jump press is kept until the first step
+ * consumes it. Attacking and throwing are only animated, so they are not
+ * part of the scripted or recorded input.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class HeroInput {
+    
+    private boolean left;
+    private boolean right;
+    private boolean run;
+    private boolean jumpPressed;
+    private boolean attackPressed;
+    private boolean throwPressed;
+    
+    public void sample( EngineFrame e ) {
+        
+        left = e.isKeyDown( EngineFrame.KEY_LEFT ) || e.isGamepadButtonDown( EngineFrame.GAMEPAD_1, EngineFrame.GAMEPAD_BUTTON_LEFT_FACE_LEFT );
+        right = e.isKeyDown( EngineFrame.KEY_RIGHT ) || e.isGamepadButtonDown( EngineFrame.GAMEPAD_1, EngineFrame.GAMEPAD_BUTTON_LEFT_FACE_RIGHT );
+        run = e.isKeyDown( EngineFrame.KEY_CONTROL ) || e.isGamepadButtonDown( EngineFrame.GAMEPAD_1, EngineFrame.GAMEPAD_BUTTON_RIGHT_FACE_LEFT );
+        
+        if ( e.isKeyPressed( EngineFrame.KEY_SPACE ) || e.isGamepadButtonPressed( EngineFrame.GAMEPAD_1, EngineFrame.GAMEPAD_BUTTON_RIGHT_FACE_DOWN ) ) {
+            jumpPressed = true;
+        }
+        
+        if ( e.isKeyPressed( EngineFrame.KEY_X ) || e.isGamepadButtonPressed( EngineFrame.GAMEPAD_1, EngineFrame.GAMEPAD_BUTTON_RIGHT_FACE_RIGHT ) ) {
+            attackPressed = true;
+        }
+        
+        if ( e.isKeyPressed( EngineFrame.KEY_Z ) || e.isGamepadButtonPressed( EngineFrame.GAMEPAD_1, EngineFrame.GAMEPAD_BUTTON_RIGHT_FACE_UP ) ) {
+            throwPressed = true;
+        }
+        
+    }
+    
+    /**
+     * Sets the commands directly, for scripted or recorded input.
+     */
+    public void set( boolean left, boolean right, boolean run, boolean jump ) {
+        this.left = left;
+        this.right = right;
+        this.run = run;
+        if ( jump ) {
+            jumpPressed = true;
+        }
+    }
+    
+    /**
+     * @return if jump was pressed since the last call.
+     */
+    public boolean consumeJump() {
+        boolean pressed = jumpPressed;
+        jumpPressed = false;
+        return pressed;
+    }
+
+    /**
+     * @return if attack was pressed since the last call.
+     */
+    public boolean consumeAttack() {
+        boolean pressed = attackPressed;
+        attackPressed = false;
+        return pressed;
+    }
+    
+    /**
+     * @return if throw was pressed since the last call.
+     */
+    public boolean consumeThrow() {
+        boolean pressed = throwPressed;
+        throwPressed = false;
+        return pressed;
+    }
+
+    public boolean isLeft() {
+        return left;
+    }
+
+    public boolean isRight() {
+        return right;
+    }
+
+    public boolean isRun() {
+        return run;
+    }
+
+    public boolean isJumpPressed() {
+        return jumpPressed;
+    }
+    
+}
@@ -0,0 +1,80 @@
+package br.com.davidbuzatto.nonameplat.entities.effects;
+
+import br.com.davidbuzatto.jsge.animation.AnimationExecutionState;
+import br.com.davidbuzatto.jsge.animation.frame.FrameByFrameAnimation;
+import br.com.davidbuzatto.jsge.animation.frame.SpriteMapAnimationFrame;
+import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache.Transform;
+import br.com.davidbuzatto.nonameplat.entities.Entity;
+import br.com.davidbuzatto.nonameplat.entities.EntityPool;
+import br.com.davidbuzatto.nonameplat.entities.EntityStore;
+import br.com.davidbuzatto.nonameplat.entities.Poolable;
+
+/**
+ * A short-lived animation that plays once where it was spawned, like the
+ * dust of the double jump, and then goes back to its pool.
+ * 
+ * @author Prof. Dr. David Buzatto
+ */
+public class Effect extends Entity implements Poolable {
+    
+    private final EntityPool<Effect> pool;
+    private final String imagePath;
+    private final double frameWidth;
+    private final double frameHeight;
+    private final FrameByFrameAnimation<SpriteMapAnimationFrame> animation;
+    
+    /**
+     * @param imagePath the frames of the animation, side by side.
+     */
+    public Effect( EntityStore store, EntityPool<Effect> pool, String imagePath, double frameWidth, double frameHeight, double timeToNextFrame ) {
+        
+        super( store, 0, 0, frameWidth, frameHeight );
+        
+        this.pool = pool;
+        this.imagePath = imagePath;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.animation = new FrameByFrameAnimation<>( 
+            timeToNextFrame,
+            AssetCache.getShared().acquireFrames( imagePath, Transform.NONE, frameWidth, frameHeight ),
+            false
+        );
+        this.animation.setStopAtLastFrameWhenFinished( false );
+        
+    }
+    
+    @Override
+    public void reset( double x, double y ) {
+        acquire( x, y, frameWidth, frameHeight );
+        animation.reset();
+    }
+    
+    @Override
+    public void dispose() {
+        AssetCache.getShared().release( imagePath, Transform.NONE );
+    }
+    
+    public void update( double delta ) {
+        animation.update( delta );
+    }
+    
+    public void draw( EngineFrame e ) {
+        if ( !isFinished() ) {
+            animation.getCurrentFrame().draw( e, store.x[slot], store.y[slot] );
+        }
+    }
+    
+    public boolean isFinished() {
+        return animation.getState() == AnimationExecutionState.FINISHED;
+    }
+    
+    /**
+     * @return the pool the effect goes back to when finished.
+     */
+    public EntityPool<Effect> getPool() {
+        return pool;
+    }
+    
+}
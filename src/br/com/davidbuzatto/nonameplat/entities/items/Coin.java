@@ -1,16 +1,15 @@
 package br.com.davidbuzatto.nonameplat.entities.items;
 
-import br.com.davidbuzatto.jsge.animation.AnimationUtils;
-import br.com.davidbuzatto.jsge.animation.frame.FrameByFrameAnimation;
-import br.com.davidbuzatto.jsge.animation.frame.SpriteMapAnimationFrame;
 import br.com.davidbuzatto.jsge.collision.aabb.AABB;
 import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
 import br.com.davidbuzatto.jsge.core.utils.ColorUtils;
-import br.com.davidbuzatto.jsge.image.Image;
-import br.com.davidbuzatto.jsge.image.ImageUtils;
-import br.com.davidbuzatto.jsge.math.Vector2;
 import br.com.davidbuzatto.nonameplat.GameWorld;
+import br.com.davidbuzatto.nonameplat.animation.AnimationTimeline;
+import br.com.davidbuzatto.nonameplat.animation.AnimationTimelines;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache.Transform;
 import br.com.davidbuzatto.nonameplat.entities.Entity;
+import br.com.davidbuzatto.nonameplat.entities.EntityStore;
+import br.com.davidbuzatto.nonameplat.entities.Poolable;
 import java.awt.Color;
 
 /**
@@ -18,49 +17,52 @@ import java.awt.Color;
  * 
  * @author Prof. Dr. David Buzatto
  */
-public class Coin extends Entity {
+public class Coin extends Entity implements Poolable {
+    
+    public static final String IMAGE_PATH = "resources/images/sprites/items/bigCoin.png";
     
-    private Vector2 pos;
-    private Vector2 dim;
     private Color color;
     
     private State state;
     
-    private Image imageMap;
-    private FrameByFrameAnimation<SpriteMapAnimationFrame> animation;
+    // shared by every coin
+    private AnimationTimeline animation;
+    private double animationOffset;
+    
+    // the map cell it was spawned from, -1 if none
+    private int spawnCell = -1;
     
     // AABB
     private AABB aabb;
     
-    public Coin( Vector2 pos, Color color ) {
+    public Coin( EntityStore store, AnimationTimelines timelines, double x, double y, Color color ) {
+        
+        super( store, x, y, 34, 34 );
         
-        this.pos = pos;
-        this.dim = new Vector2( 34, 34 );
         this.color = color;
-        this.aabb = new AABB( pos.x, pos.y, pos.x + dim.x, pos.y + dim.y, AABB.Type.STATIC, this );
+        this.aabb = new AABB( x, y, x + getWidth(), y + getHeight(), AABB.Type.STATIC, this );
         
         this.state = State.ACTIVE;
         
-        this.imageMap = ImageUtils.loadImage( "resources/images/sprites/items/bigCoin.png" );
-        this.animation = new FrameByFrameAnimation<>( 
-            0.05,
-            AnimationUtils.getSpriteMapAnimationFrameList( imageMap, dim.x, dim.y ),
-            true
-        );
+        this.animation = timelines.get( IMAGE_PATH, Transform.NONE, getWidth(), getHeight(), 0.05 );
         
     }
     
-    public void update( double delta ) {
-        if ( state == State.ACTIVE ) {
-            animation.update( delta );
-        }
+    @Override
+    public void reset( double x, double y ) {
+        acquire( x, y, 34, 34 );
+        aabb.moveTo( x, y );
+        aabb.active = true;
+        state = State.ACTIVE;
+        animationOffset = 0;
+        spawnCell = -1;
     }
     
     public void draw( EngineFrame e ) {
         
         if ( state == State.ACTIVE ) {
             
-            animation.getCurrentFrame().draw( e, pos.x, pos.y );
+            animation.getFrame( animationOffset ).draw( e, store.x[slot], store.y[slot] );
 
             if ( GameWorld.SHOW_BOUNDARIES ) {
                 e.fillAABB( aabb, ColorUtils.fade( color, 0.2 ) );
@@ -71,14 +73,6 @@ public class Coin extends Entity {
         
     }
 
-    public Vector2 getPos() {
-        return pos;
-    }
-
-    public Vector2 getDim() {
-        return dim;
-    }
-
     public AABB getAABB() {
         return aabb;
     }
@@ -87,6 +81,26 @@ public class Coin extends Entity {
         return state == State.ACTIVE;
     }
     
+    /**
+     * @param animationOffset how far ahead of the other coins this one
+     * spins, in seconds.
+     */
+    public void setAnimationOffset( double animationOffset ) {
+        this.animationOffset = animationOffset;
+    }
+    
+    /**
+     * @return the map cell the coin was spawned from, or -1 if it was
+     * spawned while playing.
+     */
+    public int getSpawnCell() {
+        return spawnCell;
+    }
+    
+    public void setSpawnCell( int spawnCell ) {
+        this.spawnCell = spawnCell;
+    }
+    
     public void collect() {
         state = State.INACTIVE;
         aabb.active = false;
@@ -1,12 +1,11 @@
 package br.com.davidbuzatto.nonameplat.entities.tiles;
 
-import br.com.davidbuzatto.jsge.collision.aabb.AABB;
 import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
 import br.com.davidbuzatto.jsge.core.utils.ColorUtils;
 import br.com.davidbuzatto.jsge.image.Image;
-import br.com.davidbuzatto.jsge.math.Vector2;
 import br.com.davidbuzatto.nonameplat.GameWorld;
 import br.com.davidbuzatto.nonameplat.entities.Entity;
+import br.com.davidbuzatto.nonameplat.entities.EntityStore;
 import java.awt.Color;
 
 /**
@@ -16,56 +15,62 @@ import java.awt.Color;
  */
 public class Tile extends Entity {
     
-    private Vector2 pos;
-    private Vector2 dim;
     private Color color;
     private Image skin;
     
-    // AABB
-    private AABB aabb;
-    
-    public Tile( Vector2 pos, Color color, Image skin ) {
-        this.pos = pos;
-        this.dim = new Vector2( GameWorld.BASE_WIDTH, GameWorld.BASE_WIDTH );
+    public Tile( EntityStore store, double x, double y, Color color, Image skin ) {
+        super( store, x, y, GameWorld.BASE_WIDTH, GameWorld.BASE_WIDTH );
         this.color = color;
         this.skin = skin;
-        this.aabb = new AABB( pos.x, pos.y, pos.x + dim.x, pos.y + dim.y, AABB.Type.STATIC, this );
     }
     
-    public Tile( Vector2 pos, Color color ) {
-        this( pos, color, null );
+    public Tile( EntityStore store, double x, double y, Color color ) {
+        this( store, x, y, color, null );
     }
     
-    public Tile( Vector2 pos ) {
-        this( pos, EngineFrame.WHITE, null );
+    public Tile( EntityStore store, double x, double y ) {
+        this( store, x, y, EngineFrame.WHITE, null );
     }
     
     public void draw( EngineFrame e ) {
         
+        double x = store.x[slot];
+        double y = store.y[slot];
+        
         if ( skin != null ) {
-            e.drawImage( skin, pos.x, pos.y );
+            e.drawImage( skin, x, y );
         } else {
-            e.fillRectangle( pos, dim, color );
-            e.drawRectangle( pos, dim, EngineFrame.BLACK );
+            e.fillRectangle( x, y, store.width[slot], store.height[slot], color );
+            e.drawRectangle( x, y, store.width[slot], store.height[slot], EngineFrame.BLACK );
         }
         
         if ( GameWorld.SHOW_BOUNDARIES ) {
-            e.fillAABB( aabb, ColorUtils.fade( color, 0.2 ) );
-            e.drawAABB( aabb, EngineFrame.BLACK );
+            drawBoundaries( e );
         }
         
     }
-
-    public Vector2 getPos() {
-        return pos;
-    }
-
-    public Vector2 getDim() {
-        return dim;
+    
+    /**
+     * Draws this tile into a layer image whose origin is at (originX, originY)
+     * in world coordinates.
+     */
+    public void draw( Image layer, double originX, double originY ) {
+        
+        double x = store.x[slot] - originX;
+        double y = store.y[slot] - originY;
+        
+        if ( skin != null ) {
+            layer.drawImage( skin, x, y );
+        } else {
+            layer.fillRectangle( x, y, store.width[slot], store.height[slot], color );
+            layer.drawRectangle( x, y, store.width[slot], store.height[slot], EngineFrame.BLACK );
+        }
+        
     }
-
-    public AABB getAABB() {
-        return aabb;
+    
+    public void drawBoundaries( EngineFrame e ) {
+        e.fillRectangle( store.x[slot], store.y[slot], store.width[slot], store.height[slot], ColorUtils.fade( color, 0.2 ) );
+        e.drawRectangle( store.x[slot], store.y[slot], store.width[slot], store.height[slot], EngineFrame.BLACK );
     }
     
 }
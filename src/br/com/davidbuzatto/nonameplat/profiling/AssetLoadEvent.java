@@ -0,0 +1,34 @@
+package br.com.davidbuzatto.nonameplat.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of an asset read from disk.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+@Name( "br.com.davidbuzatto.nonameplat.AssetLoad" )
+@Label( "Asset Load" )
+@Category( { "NoNamePlat", "Assets" } )
+@Description( "An image read and decoded" )
+public class AssetLoadEvent extends Event {
+    
+    @Label( "Path" )
+    public String path;
+    
+    @Label( "File Size" )
+    @DataAmount
+    public long fileSize;
+    
+    @Label( "Width" )
+    public int width;
+    
+    @Label( "Height" )
+    public int height;
+    
+}
@@ -0,0 +1,34 @@
+package br.com.davidbuzatto.nonameplat.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event of a run of ContactPass.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+@Name( "br.com.davidbuzatto.nonameplat.CollisionPass" )
+@Label( "Collision Pass" )
+@Category( { "NoNamePlat", "Game Loop" } )
+@Description( "Contacts of a simulation step, found once for the whole world" )
+@StackTrace( false )
+public class CollisionPassEvent extends Event {
+    
+    @Label( "Solid Pairs" )
+    @Description( "Pairs of a moving entity and a nearby solid, from the tile grid, the enemies' tested by the enemy simulator included" )
+    public int solidPairs;
+    
+    @Label( "Entity Pairs" )
+    @Description( "Pairs of entities reported by the broadphase" )
+    public int entityPairs;
+    
+    @Label( "Contacts" )
+    @Description( "Tested pairs whose bounding boxes overlap" )
+    public int contacts;
+    
+}
@@ -0,0 +1,126 @@
+package br.com.davidbuzatto.nonameplat.profiling;
+
+import br.com.davidbuzatto.nonameplat.profiling.FrameProfiler.Phase;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event of a frame, from the end of the previous frame to
+ * the end of this one, with the time of each phase. Committed by
+ * FrameProfiler.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+@Name( "br.com.davidbuzatto.nonameplat.Frame" )
+@Label( "Frame" )
+@Category( { "NoNamePlat", "Game Loop" } )
+@Description( "A frame of the game loop and the time of each phase" )
+@StackTrace( false )
+public class FrameEvent extends Event {
+    
+    @Label( "Work Time" )
+    @Description( "Sum of the phase times, the rest of the frame is spent waiting" )
+    @Timespan( Timespan.NANOSECONDS )
+    long workTime;
+    
+    @Label( "Hero Update" )
+    @Timespan( Timespan.NANOSECONDS )
+    long hero;
+    
+    @Label( "Enemies" )
+    @Timespan( Timespan.NANOSECONDS )
+    long enemies;
+    
+    @Label( "Contacts" )
+    @Timespan( Timespan.NANOSECONDS )
+    long contacts;
+    
+    @Label( "Broadphase Update" )
+    @Timespan( Timespan.NANOSECONDS )
+    long broadphase;
+    
+    @Label( "Animations" )
+    @Timespan( Timespan.NANOSECONDS )
+    long animations;
+    
+    @Label( "Chunk Streaming" )
+    @Timespan( Timespan.NANOSECONDS )
+    long chunks;
+    
+    @Label( "HUD" )
+    @Timespan( Timespan.NANOSECONDS )
+    long hud;
+    
+    @Label( "Camera" )
+    @Timespan( Timespan.NANOSECONDS )
+    long camera;
+    
+    @Label( "Tile Baking" )
+    @Timespan( Timespan.NANOSECONDS )
+    long tileBaking;
+    
+    @Label( "Parallax" )
+    @Timespan( Timespan.NANOSECONDS )
+    long parallax;
+    
+    @Label( "Culling" )
+    @Timespan( Timespan.NANOSECONDS )
+    long culling;
+    
+    @Label( "Tiles" )
+    @Timespan( Timespan.NANOSECONDS )
+    long tiles;
+    
+    @Label( "Enemy Draw" )
+    @Timespan( Timespan.NANOSECONDS )
+    long enemyDraw;
+    
+    @Label( "Coin Draw" )
+    @Timespan( Timespan.NANOSECONDS )
+    long coinDraw;
+    
+    @Label( "Hero Draw" )
+    @Timespan( Timespan.NANOSECONDS )
+    long heroDraw;
+    
+    @Label( "HUD Draw" )
+    @Timespan( Timespan.NANOSECONDS )
+    long hudDraw;
+    
+    @Label( "Profiler" )
+    @Timespan( Timespan.NANOSECONDS )
+    long profiler;
+    
+    /**
+     * Copies the phase times, indexed by Phase ordinal.
+     */
+    void setPhaseTimes( long[] times, long workTime ) {
+        
+        this.workTime = workTime;
+        
+        hero = times[Phase.HERO.ordinal()];
+        enemies = times[Phase.ENEMIES.ordinal()];
+        contacts = times[Phase.CONTACTS.ordinal()];
+        broadphase = times[Phase.BROADPHASE.ordinal()];
+        animations = times[Phase.ANIMATIONS.ordinal()];
+        chunks = times[Phase.CHUNKS.ordinal()];
+        hud = times[Phase.HUD.ordinal()];
+        camera = times[Phase.CAMERA.ordinal()];
+        tileBaking = times[Phase.TILE_BAKING.ordinal()];
+        parallax = times[Phase.PARALLAX.ordinal()];
+        culling = times[Phase.CULLING.ordinal()];
+        tiles = times[Phase.TILES.ordinal()];
+        enemyDraw = times[Phase.ENEMY_DRAW.ordinal()];
+        coinDraw = times[Phase.COIN_DRAW.ordinal()];
+        heroDraw = times[Phase.HERO_DRAW.ordinal()];
+        hudDraw = times[Phase.HUD_DRAW.ordinal()];
+        profiler = times[Phase.PROFILER.ordinal()];
+        
+    }
+    
+}
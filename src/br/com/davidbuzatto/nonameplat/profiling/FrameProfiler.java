@@ -0,0 +1,250 @@
+package br.com.davidbuzatto.nonameplat.profiling;
+
+import java.awt.Color;
+import java.util.Arrays;
+import jdk.jfr.EventType;
+
+/**
+ * Times the phases of each frame and keeps the last frames, so the time
+ * of each phase, the frame time percentiles and a histogram can be shown
+ * while playing.
+ * 
+ * A phase may run more than once in a frame (the simulation steps), its
+ * times are added up. Only System.nanoTime() is called while timing, so
+ * the profiler can stay always on. When a flight recording is running,
+ * each frame is also committed as a FrameEvent.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class FrameProfiler {
+    
+    public static enum Phase {
+        
+        // simulation
+        HERO( "hero update", true, new Color( 0, 121, 241 ) ),
+        ENEMIES( "enemies", true, new Color( 230, 41, 55 ) ),
+        CONTACTS( "contacts", true, new Color( 255, 161, 0 ) ),
+        BROADPHASE( "broadphase update", true, new Color( 135, 60, 190 ) ),
+        ANIMATIONS( "animation clocks", true, new Color( 253, 249, 0 ) ),
+        CHUNKS( "chunk streaming", true, new Color( 127, 106, 79 ) ),
+        
+        // presentation
+        HUD( "hud", true, new Color( 0, 228, 48 ) ),
+        CAMERA( "camera", true, new Color( 102, 191, 255 ) ),
+        TILE_BAKING( "tile baking", true, new Color( 76, 63, 47 ) ),
+        PARALLAX( "parallax", false, new Color( 0, 82, 172 ) ),
+        CULLING( "culling", false, new Color( 200, 122, 255 ) ),
+        TILES( "tiles", false, new Color( 130, 130, 130 ) ),
+        ENEMY_DRAW( "enemy draw", false, new Color( 190, 33, 55 ) ),
+        COIN_DRAW( "coin draw", false, new Color( 255, 203, 0 ) ),
+        HERO_DRAW( "hero draw", false, new Color( 0, 158, 47 ) ),
+        HUD_DRAW( "hud draw", false, new Color( 0, 117, 44 ) ),
+        PROFILER( "profiler", false, new Color( 80, 80, 80 ) );
+        
+        private final String label;
+        private final boolean update;
+        private final Color color;
+        
+        private Phase( String label, boolean update, Color color ) {
+            this.label = label;
+            this.update = update;
+            this.color = color;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return if the phase is part of update, otherwise of draw.
+         */
+        public boolean isUpdate() {
+            return update;
+        }
+
+        public Color getColor() {
+            return color;
+        }
+        
+    }
+    
+    /**
+     * How many frames are kept.
+     */
+    public static final int HISTORY = 240;
+    
+    /**
+     * Width of the histogram buckets, in nanoseconds (1 ms). The last
+     * bucket counts everything longer.
+     */
+    public static final long BUCKET_WIDTH = 1_000_000;
+    public static final int BUCKETS = 34;
+    
+    private static final Phase[] PHASES = Phase.values();
+    private static final EventType FRAME_EVENT_TYPE = EventType.getEventType( FrameEvent.class );
+    
+    private final long[] started;
+    private final long[] current;
+    
+    // ring buffers, one slot per frame
+    private final long[][] phaseTimes;
+    private final long[] frameTimes;
+    private final long[] workTimes;
+    private int head;
+    private int count;
+    
+    private final int[] histogram;
+    private final long[] sorted;
+    private long p50;
+    private long p95;
+    private long p99;
+    
+    private long lastFrameEnd;
+    
+    // only created while recording
+    private FrameEvent frameEvent;
+    
+    public FrameProfiler() {
+        this.started = new long[PHASES.length];
+        this.current = new long[PHASES.length];
+        this.phaseTimes = new long[PHASES.length][HISTORY];
+        this.frameTimes = new long[HISTORY];
+        this.workTimes = new long[HISTORY];
+        this.histogram = new int[BUCKETS];
+        this.sorted = new long[HISTORY];
+    }
+    
+    public void begin( Phase phase ) {
+        started[phase.ordinal()] = System.nanoTime();
+    }
+    
+    public void end( Phase phase ) {
+        int i = phase.ordinal();
+        current[i] += System.nanoTime() - started[i];
+    }
+    
+    /**
+     * Closes the current frame: stores the time of each phase and the time
+     * since the end of the previous frame, and updates the statistics.
+     */
+    public void endFrame() {
+        
+        long now = System.nanoTime();
+        long frameTime = lastFrameEnd == 0 ? 0 : now - lastFrameEnd;
+        lastFrameEnd = now;
+        
+        if ( count == HISTORY ) {
+            histogram[bucket( frameTimes[head] )]--;
+        } else {
+            count++;
+        }
+        
+        long work = 0;
+        for ( int i = 0; i < PHASES.length; i++ ) {
+            phaseTimes[i][head] = current[i];
+            work += current[i];
+        }
+        
+        if ( frameEvent != null && frameEvent.shouldCommit() ) {
+            frameEvent.setPhaseTimes( current, work );
+            frameEvent.commit();
+        }
+        
+        Arrays.fill( current, 0 );
+        
+        if ( FRAME_EVENT_TYPE.isEnabled() ) {
+            frameEvent = new FrameEvent();
+            frameEvent.begin();
+        } else {
+            frameEvent = null;
+        }
+        
+        frameTimes[head] = frameTime;
+        workTimes[head] = work;
+        histogram[bucket( frameTime )]++;
+        head = ( head + 1 ) % HISTORY;
+        
+        System.arraycopy( frameTimes, 0, sorted, 0, count );
+        Arrays.sort( sorted, 0, count );
+        p50 = sorted[(int) ( ( count - 1 ) * 0.50 )];
+        p95 = sorted[(int) ( ( count - 1 ) * 0.95 )];
+        p99 = sorted[(int) ( ( count - 1 ) * 0.99 )];
+        
+    }
+    
+    private int bucket( long time ) {
+        return (int) Math.min( time / BUCKET_WIDTH, BUCKETS - 1 );
+    }
+    
+    private int slot( int frame ) {
+        return ( head - count + frame + HISTORY ) % HISTORY;
+    }
+    
+    /**
+     * @return how many frames are kept, up to HISTORY.
+     */
+    public int getCount() {
+        return count;
+    }
+    
+    /**
+     * @param frame from 0 (the oldest kept) to getCount() - 1 (the last).
+     * @return the time between the end of the frame and the previous one.
+     */
+    public long getFrameTime( int frame ) {
+        return frameTimes[slot( frame )];
+    }
+    
+    /**
+     * @return the time spent in the phases of a frame.
+     */
+    public long getWorkTime( int frame ) {
+        return workTimes[slot( frame )];
+    }
+    
+    public long getPhaseTime( Phase phase, int frame ) {
+        return phaseTimes[phase.ordinal()][slot( frame )];
+    }
+    
+    public long getAverage( Phase phase ) {
+        long[] times = phaseTimes[phase.ordinal()];
+        long sum = 0;
+        for ( int i = 0; i < count; i++ ) {
+            sum += times[i];
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+    
+    public long getMax( Phase phase ) {
+        long[] times = phaseTimes[phase.ordinal()];
+        long max = 0;
+        for ( int i = 0; i < count; i++ ) {
+            max = Math.max( max, times[i] );
+        }
+        return max;
+    }
+    
+    /**
+     * @return how many of the kept frames fall in each bucket of BUCKET_WIDTH.
+     */
+    public int getHistogram( int bucket ) {
+        return histogram[bucket];
+    }
+    
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP95() {
+        return p95;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+    
+    public static Phase[] getPhases() {
+        return PHASES;
+    }
+    
+}
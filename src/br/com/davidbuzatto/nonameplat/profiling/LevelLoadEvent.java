@@ -0,0 +1,37 @@
+package br.com.davidbuzatto.nonameplat.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event of a level opened by LevelCompiler.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+@Name( "br.com.davidbuzatto.nonameplat.LevelLoad" )
+@Label( "Level Load" )
+@Category( { "NoNamePlat", "Assets" } )
+@Description( "A level mapped (compiled) or parsed (text)" )
+public class LevelLoadEvent extends Event {
+    
+    @Label( "Path" )
+    public String path;
+    
+    @Label( "Compiled" )
+    public boolean compiled;
+    
+    @Label( "File Size" )
+    @DataAmount
+    public long fileSize;
+    
+    @Label( "Lines" )
+    public int lines;
+    
+    @Label( "Columns" )
+    public int columns;
+    
+}
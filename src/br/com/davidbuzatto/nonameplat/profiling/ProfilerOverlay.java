@@ -0,0 +1,160 @@
+package br.com.davidbuzatto.nonameplat.profiling;
+
+import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
+import br.com.davidbuzatto.jsge.core.utils.ColorUtils;
+import br.com.davidbuzatto.nonameplat.profiling.FrameProfiler.Phase;
+import java.awt.Color;
+
+/**
+ * Draws the frames kept by a FrameProfiler: one stacked bar per frame,
+ * colored by phase, against the 60 FPS budget, the frame time histogram,
+ * the percentiles and the average and maximum of each phase.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class ProfilerOverlay {
+    
+    public static final double BUDGET = 1_000_000_000.0 / 60;
+    
+    private static final int BAR_WIDTH = 2;
+    private static final int GRAPH_HEIGHT = 120;
+    private static final int HISTOGRAM_WIDTH = 100;
+    
+    // the legend is formatted a few times per second, not every frame; the
+    // overlay still allocates new Strings while it is shown, only less often
+    private static final int TEXT_REFRESH_FRAMES = 15;
+    
+    // how many nanoseconds fit in the graph height (2 budgets)
+    private static final double GRAPH_SCALE = BUDGET * 2;
+    
+    private final Color background;
+    private final Color budgetColor;
+    private final Color frameColor;
+    
+    private int frame;
+    private String percentilesText;
+    private final String[] phaseTexts;
+    
+    public ProfilerOverlay() {
+        this.background = ColorUtils.fade( EngineFrame.WHITE, 0.8 );
+        this.budgetColor = EngineFrame.RED;
+        this.frameColor = EngineFrame.BLACK;
+        this.phaseTexts = new String[FrameProfiler.getPhases().length];
+    }
+    
+    public void draw( EngineFrame e, FrameProfiler profiler, double x, double y ) {
+        
+        Phase[] phases = FrameProfiler.getPhases();
+        int graphWidth = FrameProfiler.HISTORY * BAR_WIDTH;
+        int legendHeight = ( phases.length + 1 ) / 2 * 14 + 30;
+        
+        e.fillRectangle( x - 10, y - 10, graphWidth + HISTOGRAM_WIDTH + 30, GRAPH_HEIGHT + legendHeight + 20, background );
+        
+        drawGraph( e, profiler, x, y );
+        drawHistogram( e, profiler, x + graphWidth + 10, y );
+        drawLegend( e, profiler, x, y + GRAPH_HEIGHT + 10 );
+        
+    }
+    
+    private void drawGraph( EngineFrame e, FrameProfiler profiler, double x, double y ) {
+        
+        Phase[] phases = FrameProfiler.getPhases();
+        double bottom = y + GRAPH_HEIGHT;
+        int count = profiler.getCount();
+        double start = x + ( FrameProfiler.HISTORY - count ) * BAR_WIDTH;
+        
+        for ( int f = 0; f < count; f++ ) {
+            
+            double bx = start + f * BAR_WIDTH;
+            double by = bottom;
+            
+            for ( Phase p : phases ) {
+                double h = profiler.getPhaseTime( p, f ) / GRAPH_SCALE * GRAPH_HEIGHT;
+                if ( h > 0 ) {
+                    h = Math.min( h, by - y );
+                    by -= h;
+                    e.fillRectangle( bx, by, BAR_WIDTH, h, p.getColor() );
+                }
+            }
+            
+            // the whole frame, including the time waiting for the next one
+            double fy = Math.max( y, bottom - profiler.getFrameTime( f ) / GRAPH_SCALE * GRAPH_HEIGHT );
+            e.fillRectangle( bx, fy, BAR_WIDTH, 1, frameColor );
+            
+        }
+        
+        double budgetY = bottom - BUDGET / GRAPH_SCALE * GRAPH_HEIGHT;
+        e.drawLine( x, budgetY, x + FrameProfiler.HISTORY * BAR_WIDTH, budgetY, budgetColor );
+        e.drawRectangle( x, y, FrameProfiler.HISTORY * BAR_WIDTH, GRAPH_HEIGHT, frameColor );
+        
+    }
+    
+    private void drawHistogram( EngineFrame e, FrameProfiler profiler, double x, double y ) {
+        
+        int max = 1;
+        for ( int b = 0; b < FrameProfiler.BUCKETS; b++ ) {
+            max = Math.max( max, profiler.getHistogram( b ) );
+        }
+        
+        double bucketHeight = (double) GRAPH_HEIGHT / FrameProfiler.BUCKETS;
+        double budgetBucket = BUDGET / FrameProfiler.BUCKET_WIDTH;
+        
+        // one bar per millisecond, the shortest frames at the bottom
+        for ( int b = 0; b < FrameProfiler.BUCKETS; b++ ) {
+            double w = (double) profiler.getHistogram( b ) / max * HISTOGRAM_WIDTH;
+            double by = y + GRAPH_HEIGHT - ( b + 1 ) * bucketHeight;
+            e.fillRectangle( x, by, w, Math.max( bucketHeight - 1, 1 ), b >= budgetBucket ? budgetColor : frameColor );
+        }
+        
+        e.drawRectangle( x, y, HISTOGRAM_WIDTH, GRAPH_HEIGHT, frameColor );
+        
+    }
+    
+    private void updateTexts( FrameProfiler profiler ) {
+        
+        percentilesText = String.format( "frame  p50 %.2f ms   p95 %.2f ms   p99 %.2f ms", 
+                ms( profiler.getP50() ), ms( profiler.getP95() ), ms( profiler.getP99() ) );
+        
+        Phase[] phases = FrameProfiler.getPhases();
+        for ( int i = 0; i < phases.length; i++ ) {
+            Phase p = phases[i];
+            phaseTexts[i] = String.format( "%s %-18s avg %.2f  max %.2f", 
+                    p.isUpdate() ? "u" : "d", p.getLabel(), ms( profiler.getAverage( p ) ), ms( profiler.getMax( p ) ) );
+        }
+        
+    }
+    
+    private void drawLegend( EngineFrame e, FrameProfiler profiler, double x, double y ) {
+        
+        if ( frame++ % TEXT_REFRESH_FRAMES == 0 ) {
+            updateTexts( profiler );
+        }
+        
+        e.drawText( percentilesText, x, y, 12, frameColor );
+        
+        Phase[] phases = FrameProfiler.getPhases();
+        int column = 0;
+        double ly = y + 18;
+        
+        for ( int i = 0; i < phases.length; i++ ) {
+            
+            Phase p = phases[i];
+            double lx = x + column * 260;
+            e.fillRectangle( lx, ly + 2, 8, 8, p.getColor() );
+            e.drawText( phaseTexts[i], lx + 12, ly, 12, frameColor );
+            
+            column++;
+            if ( column == 2 ) {
+                column = 0;
+                ly += 14;
+            }
+            
+        }
+        
+    }
+    
+    private static double ms( long nanos ) {
+        return nanos / 1_000_000.0;
+    }
+    
+}
@@ -1,7 +1,12 @@
 package br.com.davidbuzatto.nonameplat.utils;
 
 import br.com.davidbuzatto.jsge.image.Image;
+import br.com.davidbuzatto.jsge.image.ImageUtils;
+import br.com.davidbuzatto.nonameplat.profiling.AssetLoadEvent;
 import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  *
@@ -31,4 +36,32 @@ public class Utils {
         
     }
     
+    /**
+     * Loads an image, reporting it to the flight recorder as an
+     * AssetLoadEvent. Every image of the game is loaded through here.
+     */
+    public static Image loadImage( String path ) {
+        
+        AssetLoadEvent event = new AssetLoadEvent();
+        event.begin();
+        
+        Image image = ImageUtils.loadImage( path );
+        
+        event.end();
+        if ( event.shouldCommit() ) {
+            event.path = path;
+            event.width = image.getWidth();
+            event.height = image.getHeight();
+            try {
+                event.fileSize = Files.size( Path.of( path ) );
+            } catch ( IOException exc ) {
+                event.fileSize = -1;
+            }
+            event.commit();
+        }
+        
+        return image;
+        
+    }
+    
 }
@@ -0,0 +1,521 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
+import br.com.davidbuzatto.jsge.image.Image;
+import br.com.davidbuzatto.nonameplat.GameWorld;
+import br.com.davidbuzatto.nonameplat.entities.Entity;
+import br.com.davidbuzatto.nonameplat.entities.EntityPool;
+import br.com.davidbuzatto.nonameplat.entities.EntityStore;
+import br.com.davidbuzatto.nonameplat.entities.characters.BaseEnemy;
+import br.com.davidbuzatto.nonameplat.entities.items.Coin;
+import br.com.davidbuzatto.nonameplat.entities.tiles.Tile;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams the world in chunks of columns around a focus point (the hero).
+ * 
+ * Chunks within the active radius are updated and drawn, chunks within the
+ * load radius are kept in memory but sleep, and the others are unloaded.
+ * Collected coins and killed enemies are remembered by spawn cell, so they
+ * do not come back when their chunk is loaded again. Enemies that were
+ * still alive when unloaded respawn at their original cell. Entities
+ * spawned and despawned while playing come through an EntityLifecycle.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class ChunkManager {
+    
+    // the fractional part of the golden ratio
+    private static final double ANIMATION_OFFSET_STEP = 0.6180339887498949;
+    
+    private final LevelData level;
+    private final TileGrid tileGrid;
+    private final Map<Character, Image> tileSkins;
+    private final EntityStore staticStore;
+    private final EntityPool<BaseEnemy> enemyPool;
+    private final EntityPool<Coin> coinPool;
+    private final int chunkColumns;
+    private final int activeRadius;
+    private final int loadRadius;
+    
+    private final WorldChunk[] chunks;
+    private final List<WorldChunk> loadedChunks;
+    
+    private final List<BaseEnemy> activeEnemies;
+    private final List<Coin> activeCoins;
+    
+    // spawn bookkeeping, indexed by map cell; the entities keep the cell
+    // they were spawned from
+    private final BitSet consumedSpawns;
+    private final BitSet liveSpawns;
+    
+    // the visitor of the spawns of the chunk being loaded, a field so
+    // loading doesn't create one
+    private final LevelData.SpawnVisitor spawnVisitor;
+    private WorldChunk loadingChunk;
+    
+    private int focusChunk;
+    private boolean activeSetChanged;
+    
+    /**
+     * @param staticStore where the tiles are stored.
+     * @param enemyPool where the enemies come from and go back to.
+     * @param coinPool where the coins come from and go back to.
+     */
+    public ChunkManager( LevelData level, TileGrid tileGrid, Map<Character, Image> tileSkins, EntityStore staticStore, EntityPool<BaseEnemy> enemyPool, EntityPool<Coin> coinPool, int chunkColumns, int activeRadius, int loadRadius ) {
+        
+        this.level = level;
+        this.tileGrid = tileGrid;
+        this.tileSkins = tileSkins;
+        this.staticStore = staticStore;
+        this.enemyPool = enemyPool;
+        this.coinPool = coinPool;
+        this.chunkColumns = chunkColumns;
+        this.activeRadius = activeRadius;
+        this.loadRadius = Math.max( loadRadius, activeRadius + 1 );
+        
+        int chunkCount = ( level.getColumns() + chunkColumns - 1 ) / chunkColumns;
+        this.chunks = new WorldChunk[chunkCount];
+        for ( int i = 0; i < chunkCount; i++ ) {
+            chunks[i] = new WorldChunk( i, i * chunkColumns, Math.min( ( i + 1 ) * chunkColumns, level.getColumns() ) );
+        }
+        
+        this.loadedChunks = new ArrayList<>();
+        this.activeEnemies = new ArrayList<>();
+        this.activeCoins = new ArrayList<>();
+        
+        this.consumedSpawns = new BitSet( level.getLines() * level.getColumns() );
+        this.liveSpawns = new BitSet( level.getLines() * level.getColumns() );
+        this.spawnVisitor = this::spawnFromCell;
+        
+        this.focusChunk = -1;
+        
+    }
+    
+    /**
+     * Loads, activates, puts to sleep and unloads chunks around focusX.
+     * 
+     * @return true if the set of active entities changed.
+     */
+    public boolean update( double focusX ) {
+        
+        focusChunk = getChunkIndex( focusX );
+        
+        // compacts in place, without an iterator, since this runs every step
+        int kept = 0;
+        for ( int i = 0; i < loadedChunks.size(); i++ ) {
+            WorldChunk c = loadedChunks.get( i );
+            if ( Math.abs( c.getIndex() - focusChunk ) > loadRadius ) {
+                unload( c );
+            } else {
+                loadedChunks.set( kept++, c );
+            }
+        }
+        while ( loadedChunks.size() > kept ) {
+            loadedChunks.remove( loadedChunks.size() - 1 );
+        }
+        
+        int first = Math.max( focusChunk - loadRadius, 0 );
+        int last = Math.min( focusChunk + loadRadius, chunks.length - 1 );
+        
+        for ( int i = first; i <= last; i++ ) {
+            
+            WorldChunk c = chunks[i];
+            
+            if ( !c.isLoaded() ) {
+                load( c );
+                loadedChunks.add( c );
+            }
+            
+            WorldChunk.State newState = Math.abs( i - focusChunk ) <= activeRadius ? 
+                    WorldChunk.State.ACTIVE : WorldChunk.State.SLEEPING;
+            
+            if ( c.getState() != newState ) {
+                c.setState( newState );
+                activeSetChanged = true;
+            }
+            
+        }
+        
+        migrateEnemies();
+        
+        if ( activeSetChanged ) {
+            rebuildActiveLists();
+            activeSetChanged = false;
+            return true;
+        }
+        
+        return false;
+        
+    }
+    
+    /**
+     * Moves the active enemies that walked into another chunk to it.
+     */
+    private void migrateEnemies() {
+        
+        int first = Math.max( focusChunk - activeRadius, 0 );
+        int last = Math.min( focusChunk + activeRadius, chunks.length - 1 );
+        
+        for ( int i = first; i <= last; i++ ) {
+            
+            List<BaseEnemy> enemies = chunks[i].getEnemies();
+            
+            for ( int j = enemies.size() - 1; j >= 0; j-- ) {
+                
+                BaseEnemy e = enemies.get( j );
+                int target = getChunkIndex( e.getX() + e.getWidth() / 2 );
+                
+                if ( target != i ) {
+                    enemies.remove( j );
+                    if ( chunks[target].isLoaded() ) {
+                        chunks[target].getEnemies().add( e );
+                    } else {
+                        discardEnemy( e );
+                    }
+                    if ( !chunks[target].isActive() ) {
+                        activeSetChanged = true;
+                    }
+                }
+                
+            }
+            
+        }
+        
+    }
+    
+    private void rebuildActiveLists() {
+        
+        activeEnemies.clear();
+        activeCoins.clear();
+        
+        int first = Math.max( focusChunk - activeRadius, 0 );
+        int last = Math.min( focusChunk + activeRadius, chunks.length - 1 );
+        
+        for ( int i = first; i <= last; i++ ) {
+            activeEnemies.addAll( chunks[i].getEnemies() );
+            activeCoins.addAll( chunks[i].getCoins() );
+        }
+        
+    }
+    
+    private void load( WorldChunk chunk ) {
+        
+        for ( int column = chunk.getFirstColumn(); column < chunk.getLastColumn(); column++ ) {
+            for ( int line = 0; line < level.getLines(); line++ ) {
+                
+                char c = level.getTile( column, line );
+                
+                if ( c != LevelData.EMPTY ) {
+                    
+                    double x = column * GameWorld.BASE_WIDTH;
+                    double y = line * GameWorld.BASE_WIDTH;
+                    Tile t;
+                    
+                    if ( c >= 'A' && c <= 'N' ) {
+                        t = new Tile( staticStore, x, y, EngineFrame.ORANGE, tileSkins.get( c ) );
+                    } else {
+                        t = new Tile( staticStore, x, y );
+                    }
+                    
+                    chunk.getTiles().add( t );
+                    tileGrid.set( column, line, t );
+                    
+                }
+                
+            }
+        }
+        
+        SolidMerger.merge( tileGrid, chunk.getFirstColumn(), chunk.getLastColumn(), chunk.getSolids() );
+        chunk.setTileLayerDirty( true );
+        
+        loadingChunk = chunk;
+        level.visitSpawns( chunk.getFirstColumn(), chunk.getLastColumn(), spawnVisitor );
+        loadingChunk = null;
+        
+    }
+    
+    private void spawnFromCell( char type, int column, int line ) {
+        
+        int cell = line * level.getColumns() + column;
+        
+        if ( consumedSpawns.get( cell ) || liveSpawns.get( cell ) ) {
+            return;
+        }
+        
+        double x = column * GameWorld.BASE_WIDTH;
+        double y = line * GameWorld.BASE_WIDTH;
+        
+        if ( type == LevelData.ENEMY ) {
+            BaseEnemy e = enemyPool.obtain( x, y );
+            e.setAnimationOffset( animationOffset( cell ) );
+            e.setSpawnCell( cell );
+            loadingChunk.getEnemies().add( e );
+        } else if ( type == LevelData.COIN ) {
+            Coin coin = coinPool.obtain( x + GameWorld.BASE_WIDTH / 2 - 17, y + GameWorld.BASE_WIDTH / 2 - 17 );
+            coin.setAnimationOffset( animationOffset( cell ) );
+            coin.setSpawnCell( cell );
+            loadingChunk.getCoins().add( coin );
+        } else {
+            return;
+        }
+        
+        liveSpawns.set( cell );
+        
+    }
+    
+    private void unload( WorldChunk chunk ) {
+        
+        for ( Tile t : chunk.getTiles() ) {
+            tileGrid.set( tileGrid.getColumn( t.getX() ), tileGrid.getLine( t.getY() ), null );
+            t.release();
+        }
+        clearSolids( chunk );
+        
+        for ( BaseEnemy e : chunk.getEnemies() ) {
+            discardEnemy( e );
+        }
+        
+        for ( Coin c : chunk.getCoins() ) {
+            discardCoin( c );
+        }
+        
+        if ( chunk.isActive() ) {
+            activeSetChanged = true;
+        }
+        
+        chunk.getTiles().clear();
+        chunk.getEnemies().clear();
+        chunk.getCoins().clear();
+        chunk.setTileLayer( null );
+        chunk.setTileLayerDirty( false );
+        chunk.setState( WorldChunk.State.UNLOADED );
+        
+    }
+    
+    private void discardEnemy( BaseEnemy e ) {
+        int cell = e.getSpawnCell();
+        if ( cell >= 0 ) {
+            liveSpawns.clear( cell );
+            if ( !e.isAlive() ) {
+                consumedSpawns.set( cell );
+            }
+        }
+        enemyPool.free( e );
+    }
+    
+    private void discardCoin( Coin c ) {
+        int cell = c.getSpawnCell();
+        if ( cell >= 0 ) {
+            liveSpawns.clear( cell );
+            if ( !c.isActive() ) {
+                consumedSpawns.set( cell );
+            }
+        }
+        coinPool.free( c );
+    }
+    
+    /**
+     * Discards killed enemies and collected coins of the active chunks,
+     * which will not spawn again, and removes them from the lists.
+     * 
+     * @return how many entities were discarded.
+     */
+    int despawn( List<BaseEnemy> enemies, List<Coin> coins ) {
+        
+        int count = 0;
+        
+        for ( int i = 0; i < enemies.size(); i++ ) {
+            BaseEnemy e = enemies.get( i );
+            if ( !e.isReleased() ) {
+                discardEnemy( e );
+                count++;
+            }
+        }
+        
+        for ( int i = 0; i < coins.size(); i++ ) {
+            Coin c = coins.get( i );
+            if ( !c.isReleased() ) {
+                discardCoin( c );
+                count++;
+            }
+        }
+        
+        int first = Math.max( focusChunk - activeRadius, 0 );
+        int last = Math.min( focusChunk + activeRadius, chunks.length - 1 );
+        
+        for ( int i = first; i <= last; i++ ) {
+            removeReleased( chunks[i].getEnemies() );
+            removeReleased( chunks[i].getCoins() );
+        }
+        removeReleased( activeEnemies );
+        removeReleased( activeCoins );
+        
+        return count;
+        
+    }
+    
+    /**
+     * The phase of the shared animations of what spawns in a cell: spread
+     * over a second by the golden ratio, so neighbors never look alike, and
+     * the same every time the cell is loaded.
+     */
+    private static double animationOffset( int cell ) {
+        return ( cell * ANIMATION_OFFSET_STEP ) % 1.0;
+    }
+    
+    /**
+     * Adds an enemy obtained from the enemy pool while playing to the
+     * chunk under it. Enemies outside the loaded chunks are discarded.
+     * 
+     * @return true if the enemy is active.
+     */
+    boolean spawn( BaseEnemy e ) {
+        
+        WorldChunk chunk = chunks[getChunkIndex( e.getX() + e.getWidth() / 2 )];
+        
+        if ( !chunk.isLoaded() ) {
+            enemyPool.free( e );
+            return false;
+        }
+        
+        chunk.getEnemies().add( e );
+        if ( chunk.isActive() ) {
+            activeEnemies.add( e );
+            return true;
+        }
+        
+        return false;
+        
+    }
+    
+    /**
+     * Adds a coin obtained from the coin pool while playing to the chunk
+     * under it. Coins outside the loaded chunks are discarded.
+     * 
+     * @return true if the coin is active.
+     */
+    boolean spawn( Coin c ) {
+        
+        WorldChunk chunk = chunks[getChunkIndex( c.getX() + c.getWidth() / 2 )];
+        
+        if ( !chunk.isLoaded() ) {
+            coinPool.free( c );
+            return false;
+        }
+        
+        chunk.getCoins().add( c );
+        if ( chunk.isActive() ) {
+            activeCoins.add( c );
+            return true;
+        }
+        
+        return false;
+        
+    }
+    
+    /**
+     * Compacts a list in place, keeping the order.
+     */
+    private static <T extends Entity> void removeReleased( List<T> entities ) {
+        int kept = 0;
+        for ( int i = 0; i < entities.size(); i++ ) {
+            T e = entities.get( i );
+            if ( !e.isReleased() ) {
+                entities.set( kept++, e );
+            }
+        }
+        while ( entities.size() > kept ) {
+            entities.remove( entities.size() - 1 );
+        }
+    }
+    
+    /**
+     * Unloads every chunk, giving the enemies and coins back to their pools.
+     */
+    public void dispose() {
+        for ( int i = 0; i < loadedChunks.size(); i++ ) {
+            unload( loadedChunks.get( i ) );
+        }
+        loadedChunks.clear();
+        activeEnemies.clear();
+        activeCoins.clear();
+    }
+    
+    /**
+     * Replaces the tile of a cell of a loaded chunk, merging its solids
+     * again and marking its baked tile layer to be rebuilt.
+     */
+    public void setTile( int column, int line, Tile tile ) {
+        
+        WorldChunk chunk = chunks[Math.min( column / chunkColumns, chunks.length - 1 )];
+        
+        if ( !chunk.isLoaded() ) {
+            return;
+        }
+        
+        Tile old = tileGrid.get( column, line );
+        if ( old != null ) {
+            chunk.getTiles().remove( old );
+            old.release();
+        }
+        if ( tile != null ) {
+            chunk.getTiles().add( tile );
+        }
+        
+        tileGrid.set( column, line, tile );
+        
+        clearSolids( chunk );
+        SolidMerger.merge( tileGrid, chunk.getFirstColumn(), chunk.getLastColumn(), chunk.getSolids() );
+        chunk.setTileLayerDirty( true );
+        
+    }
+    
+    private void clearSolids( WorldChunk chunk ) {
+        for ( int column = chunk.getFirstColumn(); column < chunk.getLastColumn(); column++ ) {
+            for ( int line = 0; line < level.getLines(); line++ ) {
+                tileGrid.setSolid( column, line, null );
+            }
+        }
+        chunk.getSolids().clear();
+    }
+    
+    public int getChunkIndex( double x ) {
+        int index = (int) Math.floor( x / ( chunkColumns * GameWorld.BASE_WIDTH ) );
+        return Math.max( 0, Math.min( index, chunks.length - 1 ) );
+    }
+
+    /**
+     * @return the enemies of the active chunks. Rebuilt when update returns true.
+     */
+    public List<BaseEnemy> getActiveEnemies() {
+        return activeEnemies;
+    }
+
+    /**
+     * @return the coins of the active chunks. Rebuilt when update returns true.
+     */
+    public List<Coin> getActiveCoins() {
+        return activeCoins;
+    }
+
+    public List<WorldChunk> getLoadedChunks() {
+        return loadedChunks;
+    }
+
+    public WorldChunk[] getChunks() {
+        return chunks;
+    }
+
+    public int getChunkColumns() {
+        return chunkColumns;
+    }
+
+    public LevelData getLevel() {
+        return level;
+    }
+    
+}
@@ -0,0 +1,273 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.nonameplat.collision.ContactListener;
+import br.com.davidbuzatto.nonameplat.collision.ContactPass;
+import br.com.davidbuzatto.nonameplat.entities.characters.BaseEnemy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Updates the active enemies in batches, in parallel.
+ * 
+ * Only the work that touches a single enemy runs in parallel: moving,
+ * resolving the contacts with the static solids (the tile grid is read
+ * only during the update) and finishing the update. Everything that
+ * involves other entities, like the broadphase and the contacts with the
+ * hero, stays in the serial phase of the world. Since no enemy reads
+ * another one, the result is the same as running them one by one.
+ * 
+ * The worker threads live as long as the simulator and wait parked
+ * between the phases. In each phase they and the calling thread take the
+ * batches from a shared counter, so a step doesn't create tasks and
+ * doesn't allocate.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class EnemySimulator {
+    
+    /**
+     * How many enemies each task updates.
+     */
+    public static final int BATCH_SIZE = 32;
+    
+    private final Thread[] workers;
+    
+    // one list of nearby solids and one count of the solids tested for
+    // each batch, summed after the phase
+    private final List<List<AABB>> batchSolids;
+    private int[] batchSolidPairs;
+    private int solidPairs;
+    
+    // the phase being run, published to the workers by phase
+    private List<BaseEnemy> enemies;
+    private TileGrid tileGrid;
+    private ContactListener listener;
+    private double delta;
+    private boolean move;
+    private int batches;
+    private Thread caller;
+    
+    private volatile int phase;
+    private volatile boolean disposed;
+    private final AtomicInteger nextBatch;
+    
+    // workers that didn't finish the current phase yet
+    private final AtomicInteger busyWorkers;
+    
+    // the first error of the phase, the other threads stop taking batches
+    // and it is thrown by the calling thread
+    private volatile Throwable failure;
+    
+    /**
+     * @param parallelism how many threads are used. With 1 everything runs
+     * in the calling thread.
+     */
+    public EnemySimulator( int parallelism ) {
+        
+        this.batchSolids = new ArrayList<>();
+        this.batchSolidPairs = new int[0];
+        this.nextBatch = new AtomicInteger();
+        this.busyWorkers = new AtomicInteger();
+        
+        // the calling thread is one of them
+        this.workers = new Thread[Math.max( parallelism - 1, 0 )];
+        for ( int i = 0; i < workers.length; i++ ) {
+            workers[i] = new Thread( this::work, "enemy-simulator-" + i );
+            workers[i].setDaemon( true );
+            workers[i].start();
+        }
+        
+    }
+    
+    /**
+     * Moves the enemies and resolves their contacts with the solids.
+     */
+    public void move( List<BaseEnemy> enemies, TileGrid tileGrid, ContactListener listener, double delta ) {
+        this.tileGrid = tileGrid;
+        this.listener = listener;
+        run( enemies, delta, true );
+    }
+    
+    /**
+     * Finishes the update of the enemies, after the serial contacts.
+     */
+    public void finishUpdate( List<BaseEnemy> enemies, double delta ) {
+        run( enemies, delta, false );
+    }
+    
+    /**
+     * Stops the worker threads.
+     */
+    public void dispose() {
+        disposed = true;
+        for ( Thread w : workers ) {
+            LockSupport.unpark( w );
+        }
+    }
+    
+    private void run( List<BaseEnemy> enemies, double delta, boolean move ) {
+        
+        this.enemies = enemies;
+        this.delta = delta;
+        this.move = move;
+        this.batches = ( enemies.size() + BATCH_SIZE - 1 ) / BATCH_SIZE;
+        
+        while ( batchSolids.size() < batches ) {
+            batchSolids.add( new ArrayList<>() );
+        }
+        if ( batchSolidPairs.length < batches ) {
+            batchSolidPairs = Arrays.copyOf( batchSolidPairs, batches );
+        }
+        
+        if ( workers.length == 0 || batches <= 1 ) {
+            for ( int b = 0; b < batches; b++ ) {
+                runBatch( b, move );
+            }
+        } else {
+            
+            caller = Thread.currentThread();
+            nextBatch.set( 0 );
+            busyWorkers.set( workers.length );
+            failure = null;
+            
+            // the volatile write publishes the fields above
+            phase++;
+            for ( Thread w : workers ) {
+                LockSupport.unpark( w );
+            }
+            
+            try {
+                runBatches();
+            } catch ( RuntimeException | Error exc ) {
+                fail( exc );
+                throw exc;
+            } finally {
+                // every worker must leave the phase before the next one
+                // starts, even when this one failed
+                while ( busyWorkers.get() != 0 ) {
+                    LockSupport.park( this );
+                }
+            }
+            
+            Throwable workerFailure = failure;
+            if ( workerFailure != null ) {
+                throw new IllegalStateException( "Could not update the enemies", workerFailure );
+            }
+            
+        }
+        
+        if ( move ) {
+            solidPairs = 0;
+            for ( int b = 0; b < batches; b++ ) {
+                solidPairs += batchSolidPairs[b];
+            }
+        }
+        
+        this.enemies = null;
+        
+    }
+    
+    /**
+     * @return how many enemy and solid pairs were tested by the last move.
+     */
+    public int getSolidPairs() {
+        return solidPairs;
+    }
+    
+    private void runBatch( int batch, boolean move ) {
+        
+        int first = batch * BATCH_SIZE;
+        int last = Math.min( first + BATCH_SIZE, enemies.size() );
+        
+        if ( move ) {
+            List<AABB> nearbySolids = batchSolids.get( batch );
+            int pairs = 0;
+            for ( int i = first; i < last; i++ ) {
+                pairs += moveEnemy( enemies.get( i ), nearbySolids );
+            }
+            batchSolidPairs[batch] = pairs;
+        } else {
+            for ( int i = first; i < last; i++ ) {
+                enemies.get( i ).finishUpdate( delta );
+            }
+        }
+        
+    }
+    
+    /**
+     * @return how many solids were tested.
+     */
+    private int moveEnemy( BaseEnemy e, List<AABB> nearbySolids ) {
+        
+        e.move( delta );
+        
+        AABB a = e.getAABB();
+        if ( !a.active ) {
+            return 0;
+        }
+        
+        nearbySolids.clear();
+        ContactPass.querySolids( tileGrid, a, nearbySolids );
+        for ( int i = 0; i < nearbySolids.size(); i++ ) {
+            listener.enemySolid( e, nearbySolids.get( i ) );
+        }
+        
+        return nearbySolids.size();
+        
+    }
+    
+    /**
+     * Takes batches until there are none left in the phase.
+     */
+    private void runBatches() {
+        int b;
+        while ( failure == null && ( b = nextBatch.getAndIncrement() ) < batches ) {
+            runBatch( b, move );
+        }
+    }
+    
+    private synchronized void fail( Throwable exc ) {
+        if ( failure == null ) {
+            failure = exc;
+        }
+    }
+    
+    /**
+     * The loop of a worker thread: waits for a phase, helps with it and
+     * tells the caller when it is done, whether it failed or not.
+     */
+    private void work() {
+        
+        int seenPhase = 0;
+        
+        while ( true ) {
+            
+            while ( phase == seenPhase && !disposed ) {
+                LockSupport.park( this );
+            }
+            
+            if ( disposed ) {
+                return;
+            }
+            
+            seenPhase = phase;
+            
+            try {
+                runBatches();
+            } catch ( Throwable exc ) {
+                fail( exc );
+            } finally {
+                if ( busyWorkers.decrementAndGet() == 0 ) {
+                    LockSupport.unpark( caller );
+                }
+            }
+            
+        }
+        
+    }
+    
+}
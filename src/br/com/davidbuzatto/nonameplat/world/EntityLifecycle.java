@@ -0,0 +1,183 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.nonameplat.collision.Broadphase;
+import br.com.davidbuzatto.nonameplat.entities.Entity;
+import br.com.davidbuzatto.nonameplat.entities.characters.BaseEnemy;
+import br.com.davidbuzatto.nonameplat.entities.effects.Effect;
+import br.com.davidbuzatto.nonameplat.entities.items.Coin;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Queues the entities created and discarded during a step and applies the
+ * queues at the end of the step, when nothing is iterating the entity
+ * lists or the broadphase.
+ *
+ * Despawned entities are removed from their chunk, from the active lists
+ * and from the broadphase and release their slot and handle, so the lists
+ * shrink as the level is cleared. Spawned entities join the chunk under
+ * them and, if it is active, the broadphase. Effects live outside the
+ * chunks, in a list of their own, and go back to their pool when removed.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class EntityLifecycle {
+
+    private final List<BaseEnemy> enemySpawns;
+    private final List<Coin> coinSpawns;
+    private final List<BaseEnemy> enemyDespawns;
+    private final List<Coin> coinDespawns;
+    private final List<Effect> effectSpawns;
+    private final List<Effect> effectDespawns;
+
+    private long spawned;
+    private long despawned;
+
+    public EntityLifecycle() {
+        this.enemySpawns = new ArrayList<>();
+        this.coinSpawns = new ArrayList<>();
+        this.enemyDespawns = new ArrayList<>();
+        this.coinDespawns = new ArrayList<>();
+        this.effectSpawns = new ArrayList<>();
+        this.effectDespawns = new ArrayList<>();
+    }
+
+    public void spawn( BaseEnemy enemy ) {
+        enemySpawns.add( enemy );
+    }
+
+    public void spawn( Coin coin ) {
+        coinSpawns.add( coin );
+    }
+
+    public void spawn( Effect effect ) {
+        effectSpawns.add( effect );
+    }
+
+    public void despawn( BaseEnemy enemy ) {
+        enemyDespawns.add( enemy );
+    }
+
+    public void despawn( Coin coin ) {
+        coinDespawns.add( coin );
+    }
+
+    public void despawn( Effect effect ) {
+        effectDespawns.add( effect );
+    }
+
+    public boolean hasPending() {
+        return !enemySpawns.isEmpty() || !coinSpawns.isEmpty() || !effectSpawns.isEmpty() ||
+               !enemyDespawns.isEmpty() || !coinDespawns.isEmpty() || !effectDespawns.isEmpty();
+    }
+
+    /**
+     * Applies the queues.
+     *
+     * @param aabbs the AABBs of the broadphase, kept in sync with it.
+     * @param effects the effects being played.
+     */
+    void apply( ChunkManager chunkManager, Broadphase broadphase, List<AABB> aabbs, List<Effect> effects ) {
+
+        if ( !hasPending() ) {
+            return;
+        }
+
+        if ( !enemyDespawns.isEmpty() || !coinDespawns.isEmpty() ) {
+
+            for ( int i = 0; i < enemyDespawns.size(); i++ ) {
+                broadphase.remove( enemyDespawns.get( i ).getAABB() );
+            }
+            for ( int i = 0; i < coinDespawns.size(); i++ ) {
+                broadphase.remove( coinDespawns.get( i ).getAABB() );
+            }
+
+            despawned += chunkManager.despawn( enemyDespawns, coinDespawns );
+
+            // compacts in place, keeping the order
+            int kept = 0;
+            for ( int i = 0; i < aabbs.size(); i++ ) {
+                AABB a = aabbs.get( i );
+                if ( !( (Entity) a.referencedObject ).isReleased() ) {
+                    aabbs.set( kept++, a );
+                }
+            }
+            while ( aabbs.size() > kept ) {
+                aabbs.remove( aabbs.size() - 1 );
+            }
+
+            enemyDespawns.clear();
+            coinDespawns.clear();
+
+        }
+
+        for ( int i = 0; i < enemySpawns.size(); i++ ) {
+            BaseEnemy e = enemySpawns.get( i );
+            if ( chunkManager.spawn( e ) ) {
+                aabbs.add( e.getAABB() );
+                broadphase.insert( e.getAABB() );
+            }
+            spawned++;
+        }
+
+        for ( int i = 0; i < coinSpawns.size(); i++ ) {
+            Coin c = coinSpawns.get( i );
+            if ( chunkManager.spawn( c ) ) {
+                aabbs.add( c.getAABB() );
+                broadphase.insert( c.getAABB() );
+            }
+            spawned++;
+        }
+
+        enemySpawns.clear();
+        coinSpawns.clear();
+
+        if ( !effectDespawns.isEmpty() ) {
+
+            for ( int i = 0; i < effectDespawns.size(); i++ ) {
+                Effect e = effectDespawns.get( i );
+                if ( !e.isReleased() ) {
+                    e.getPool().free( e );
+                    despawned++;
+                }
+            }
+
+            int kept = 0;
+            for ( int i = 0; i < effects.size(); i++ ) {
+                Effect e = effects.get( i );
+                if ( !e.isReleased() ) {
+                    effects.set( kept++, e );
+                }
+            }
+            while ( effects.size() > kept ) {
+                effects.remove( effects.size() - 1 );
+            }
+
+            effectDespawns.clear();
+
+        }
+
+        for ( int i = 0; i < effectSpawns.size(); i++ ) {
+            effects.add( effectSpawns.get( i ) );
+            spawned++;
+        }
+        effectSpawns.clear();
+
+    }
+
+    /**
+     * @return how many entities were spawned through the queues.
+     */
+    public long getSpawned() {
+        return spawned;
+    }
+
+    /**
+     * @return how many entities were despawned through the queues.
+     */
+    public long getDespawned() {
+        return despawned;
+    }
+
+}
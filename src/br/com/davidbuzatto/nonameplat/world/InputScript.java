@@ -0,0 +1,208 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+import br.com.davidbuzatto.nonameplat.entities.characters.HeroInput;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The input of the hero, step by step, to be replayed or recorded.
+ *
+ * Stored as runs of steps with the same commands. In text, each line has
+ * the number of steps followed by the commands: L (left), R (right),
+ * S (run) and J (jump, pressed in the first step of the line), or - for
+ * none. Lines starting with # are comments.
+ *
+ * <pre>
+ * # walk right for one second and jump
+ * 120 R
+ * 1 RJ
+ * 60 R
+ * </pre>
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class InputScript {
+
+    public static final int LEFT = 1;
+    public static final int RIGHT = 2;
+    public static final int RUN = 4;
+    public static final int JUMP = 8;
+
+    private int[] counts;
+    private int[] commands;
+    private int size;
+    private long ticks;
+
+    // replay position
+    private int cursor;
+    private long cursorStart;
+
+    public InputScript() {
+        this.counts = new int[16];
+        this.commands = new int[16];
+    }
+
+    /**
+     * Adds a run of steps. Runs with the same commands are merged, unless
+     * they jump, since a jump is pressed only once per run.
+     */
+    public void append( int count, int command ) {
+
+        if ( count <= 0 ) {
+            return;
+        }
+
+        if ( size > 0 && commands[size - 1] == command && ( command & JUMP ) == 0 ) {
+            counts[size - 1] += count;
+        } else {
+            if ( size == counts.length ) {
+                counts = Arrays.copyOf( counts, size * 2 );
+                commands = Arrays.copyOf( commands, size * 2 );
+            }
+            counts[size] = count;
+            commands[size] = command;
+            size++;
+        }
+
+        ticks += count;
+
+    }
+
+    /**
+     * Appends one step with the current state of the input.
+     */
+    public void record( HeroInput input ) {
+
+        int command = 0;
+
+        if ( input.isLeft() ) {
+            command |= LEFT;
+        }
+        if ( input.isRight() ) {
+            command |= RIGHT;
+        }
+        if ( input.isRun() ) {
+            command |= RUN;
+        }
+        if ( input.isJumpPressed() ) {
+            command |= JUMP;
+        }
+
+        append( 1, command );
+
+    }
+
+    /**
+     * Sets the input for a step. Steps must be applied in order, starting
+     * from 0. After the end of the script nothing is pressed.
+     */
+    public void apply( long tick, HeroInput input ) {
+
+        if ( tick < cursorStart ) {
+            cursor = 0;
+            cursorStart = 0;
+        }
+
+        while ( cursor < size && tick >= cursorStart + counts[cursor] ) {
+            cursorStart += counts[cursor];
+            cursor++;
+        }
+
+        if ( cursor == size ) {
+            input.set( false, false, false, false );
+        } else {
+            int command = commands[cursor];
+            input.set(
+                ( command & LEFT ) != 0,
+                ( command & RIGHT ) != 0,
+                ( command & RUN ) != 0,
+                ( command & JUMP ) != 0 && tick == cursorStart
+            );
+        }
+
+    }
+
+    public static InputScript read( Path path ) throws IOException {
+
+        InputScript script = new InputScript();
+        List<String> lines = Files.readAllLines( path, StandardCharsets.UTF_8 );
+
+        for ( int i = 0; i < lines.size(); i++ ) {
+
+            String line = lines.get( i ).trim();
+            if ( line.isEmpty() || line.startsWith( "#" ) ) {
+                continue;
+            }
+
+            String[] parts = line.split( "\\s+" );
+            int command = 0;
+
+            if ( parts.length > 1 ) {
+                for ( char c : parts[1].toCharArray() ) {
+                    switch ( c ) {
+                        case 'L' -> command |= LEFT;
+                        case 'R' -> command |= RIGHT;
+                        case 'S' -> command |= RUN;
+                        case 'J' -> command |= JUMP;
+                        case '-' -> {}
+                        default -> throw new IOException( String.format( "%s:%d: unknown command %c", path, i + 1, c ) );
+                    }
+                }
+            }
+
+            try {
+                script.append( Integer.parseInt( parts[0] ), command );
+            } catch ( NumberFormatException exc ) {
+                throw new IOException( String.format( "%s:%d: invalid step count %s", path, i + 1, parts[0] ), exc );
+            }
+
+        }
+
+        return script;
+
+    }
+
+    public void write( Path path ) throws IOException {
+
+        try ( BufferedWriter writer = Files.newBufferedWriter( path, StandardCharsets.UTF_8 ) ) {
+
+            for ( int i = 0; i < size; i++ ) {
+
+                int command = commands[i];
+                StringBuilder sb = new StringBuilder();
+
+                if ( ( command & LEFT ) != 0 ) {
+                    sb.append( 'L' );
+                }
+                if ( ( command & RIGHT ) != 0 ) {
+                    sb.append( 'R' );
+                }
+                if ( ( command & RUN ) != 0 ) {
+                    sb.append( 'S' );
+                }
+                if ( ( command & JUMP ) != 0 ) {
+                    sb.append( 'J' );
+                }
+
+                writer.write( counts[i] + " " + ( sb.isEmpty() ? "-" : sb ) );
+                writer.newLine();
+
+            }
+
+        }
+
+    }
+
+    /**
+     * @return how many steps the script has.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+}
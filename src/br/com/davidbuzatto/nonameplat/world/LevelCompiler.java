@@ -0,0 +1,172 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+import br.com.davidbuzatto.nonameplat.profiling.LevelLoadEvent;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles ASCII levels into the binary format read by MappedLevelData.
+ * 
+ * Usage: LevelCompiler &lt;input.txt&gt; [output.lvl] [chunk columns]
+ * or LevelCompiler &lt;directory&gt; to compile every ASCII level inside it.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class LevelCompiler {
+    
+    public static final String TEXT_EXTENSION = ".txt";
+    public static final String COMPILED_EXTENSION = ".lvl";
+    public static final int DEFAULT_CHUNK_COLUMNS = 16;
+    
+    public static void compile( LevelData level, int chunkColumns, Path output ) throws IOException {
+        
+        int columns = level.getColumns();
+        int lines = level.getLines();
+        int chunkCount = Math.max( ( columns + chunkColumns - 1 ) / chunkColumns, 1 );
+        
+        // spawns, ordered by column
+        List<int[]> spawns = new ArrayList<>();
+        level.visitSpawns( 0, columns, ( type, column, line ) -> {
+            spawns.add( new int[]{ type, column, line } );
+        });
+        
+        int tileLayerOffset = MappedLevelData.HEADER_SIZE;
+        int spawnTableOffset = tileLayerOffset + columns * lines;
+        int chunkIndexOffset = spawnTableOffset + spawns.size() * MappedLevelData.SPAWN_ENTRY_SIZE;
+        int size = chunkIndexOffset + chunkCount * MappedLevelData.CHUNK_ENTRY_SIZE;
+        
+        ByteBuffer buffer = ByteBuffer.allocate( size );
+        
+        buffer.putInt( MappedLevelData.MAGIC );
+        buffer.putShort( MappedLevelData.VERSION );
+        buffer.putShort( (short) chunkColumns );
+        buffer.putInt( columns );
+        buffer.putInt( lines );
+        buffer.putInt( level.getHeroColumn() );
+        buffer.putInt( level.getHeroLine() );
+        buffer.putInt( spawns.size() );
+        buffer.putInt( chunkCount );
+        buffer.putInt( tileLayerOffset );
+        buffer.putInt( spawnTableOffset );
+        buffer.putInt( chunkIndexOffset );
+        
+        for ( int column = 0; column < columns; column++ ) {
+            for ( int line = 0; line < lines; line++ ) {
+                buffer.put( (byte) level.getTile( column, line ) );
+            }
+        }
+        
+        for ( int[] spawn : spawns ) {
+            buffer.putInt( spawn[1] );
+            buffer.putShort( (short) spawn[2] );
+            buffer.put( (byte) spawn[0] );
+            buffer.put( (byte) 0 );
+        }
+        
+        // first spawn of each chunk and how many it has
+        int spawn = 0;
+        for ( int chunk = 0; chunk < chunkCount; chunk++ ) {
+            int first = spawn;
+            int lastColumn = ( chunk + 1 ) * chunkColumns;
+            while ( spawn < spawns.size() && spawns.get( spawn )[1] < lastColumn ) {
+                spawn++;
+            }
+            buffer.putInt( first );
+            buffer.putInt( spawn - first );
+        }
+        
+        buffer.flip();
+        
+        try ( FileChannel channel = FileChannel.open( output, 
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) ) {
+            while ( buffer.hasRemaining() ) {
+                channel.write( buffer );
+            }
+        }
+        
+    }
+    
+    /**
+     * Opens a level by its path without extension, preferring the compiled
+     * file and falling back to parsing the ASCII one. A compiled file older
+     * than the ASCII one is not used, so an edited level is never played
+     * stale. Reported to the flight recorder as a LevelLoadEvent.
+     */
+    public static LevelData load( String basePath ) throws IOException {
+        
+        LevelLoadEvent event = new LevelLoadEvent();
+        event.begin();
+        
+        Path compiled = Path.of( basePath + COMPILED_EXTENSION );
+        Path text = Path.of( basePath + TEXT_EXTENSION );
+        boolean isCompiled = Files.exists( compiled );
+        
+        if ( isCompiled && Files.exists( text ) && 
+             Files.getLastModifiedTime( text ).compareTo( Files.getLastModifiedTime( compiled ) ) > 0 ) {
+            System.err.printf( "%s changed after %s was compiled, the compiled level is not used (run LevelCompiler)%n", text, compiled );
+            isCompiled = false;
+        }
+        
+        Path path = isCompiled ? compiled : text;
+        
+        LevelData level = isCompiled ? MappedLevelData.open( path ) : TextLevelData.fromFile( path );
+        
+        event.end();
+        if ( event.shouldCommit() ) {
+            event.path = path.toString();
+            event.compiled = isCompiled;
+            event.fileSize = Files.size( path );
+            event.lines = level.getLines();
+            event.columns = level.getColumns();
+            event.commit();
+        }
+        
+        return level;
+        
+    }
+    
+    public static void main( String[] args ) throws IOException {
+        
+        if ( args.length == 0 ) {
+            System.err.println( "Usage: LevelCompiler <input.txt|directory> [output.lvl] [chunk columns]" );
+            System.exit( 1 );
+        }
+        
+        Path input = Path.of( args[0] );
+        
+        if ( Files.isDirectory( input ) ) {
+            try ( DirectoryStream<Path> levels = Files.newDirectoryStream( input, "*" + TEXT_EXTENSION ) ) {
+                for ( Path level : levels ) {
+                    main( new String[]{ level.toString() } );
+                }
+            }
+            return;
+        }
+        
+        Path output;
+        
+        if ( args.length > 1 ) {
+            output = Path.of( args[1] );
+        } else {
+            String name = input.getFileName().toString();
+            if ( name.endsWith( TEXT_EXTENSION ) ) {
+                name = name.substring( 0, name.length() - TEXT_EXTENSION.length() );
+            }
+            output = input.resolveSibling( name + COMPILED_EXTENSION );
+        }
+        
+        int chunkColumns = args.length > 2 ? Integer.parseInt( args[2] ) : DEFAULT_CHUNK_COLUMNS;
+        
+        compile( TextLevelData.fromFile( input ), chunkColumns, output );
+        System.out.printf( "%s -> %s (%d bytes)%n", input, output, Files.size( output ) );
+        
+    }
+    
+}
@@ -0,0 +1,50 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+/**
+ * The data of a level: a tile layer and a table of entity spawns.
+ * 
+ * Tile cells hold the map character: 'A' to 'N' are skinned tiles,
+ * ' ' is empty and anything else that is not a spawn is a plain tile.
+ * Spawns are 'p' for the hero, 'e' for an enemy and 'c' for a coin.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public interface LevelData {
+    
+    public static final char EMPTY = ' ';
+    public static final char HERO = 'p';
+    public static final char ENEMY = 'e';
+    public static final char COIN = 'c';
+    
+    /**
+     * Receives the spawns of a range of columns.
+     */
+    @FunctionalInterface
+    public static interface SpawnVisitor {
+        void visit( char type, int column, int line );
+    }
+    
+    public int getLines();
+    
+    public int getColumns();
+    
+    /**
+     * @return the tile character of a cell, EMPTY if there is no tile.
+     */
+    public char getTile( int column, int line );
+    
+    public int getHeroColumn();
+    
+    public int getHeroLine();
+    
+    /**
+     * Visits the enemy and coin spawns from firstColumn (inclusive) to
+     * lastColumn (exclusive), ordered by column.
+     */
+    public void visitSpawns( int firstColumn, int lastColumn, SpawnVisitor visitor );
+    
+    public static boolean isTile( char c ) {
+        return c != EMPTY && c != HERO && c != ENEMY && c != COIN;
+    }
+    
+}
@@ -0,0 +1,179 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Level data read from a compiled level file mapped in memory.
+ * 
+ * Nothing is parsed or allocated per cell when the level is opened: tiles
+ * and spawns are read from the mapped file when a chunk asks for them.
+ * 
+ * File layout (big endian), as written by LevelCompiler:
+ * <pre>
+ * header       magic, version, chunk columns, columns, lines,
+ *              hero column, hero line, spawn count, chunk count,
+ *              tile layer offset, spawn table offset, chunk index offset
+ * tile layer   one byte per cell, column major (a chunk is contiguous)
+ * spawn table  column (int), line (short), type (byte), reserved (byte),
+ *              sorted by column
+ * chunk index  first spawn (int), spawn count (int), one entry per chunk
+ * </pre>
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class MappedLevelData implements LevelData {
+    
+    public static final int MAGIC = 0x4E4E504C; // NNPL
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 44;
+    public static final int SPAWN_ENTRY_SIZE = 8;
+    public static final int CHUNK_ENTRY_SIZE = 8;
+    
+    private final MappedByteBuffer buffer;
+    
+    private final int chunkColumns;
+    private final int columns;
+    private final int lines;
+    private final int heroColumn;
+    private final int heroLine;
+    private final int spawnCount;
+    private final int chunkCount;
+    private final int tileLayerOffset;
+    private final int spawnTableOffset;
+    private final int chunkIndexOffset;
+    
+    private MappedLevelData( MappedByteBuffer buffer ) throws IOException {
+        
+        this.buffer = buffer;
+        
+        if ( buffer.capacity() < HEADER_SIZE || buffer.getInt( 0 ) != MAGIC ) {
+            throw new IOException( "Not a compiled level file." );
+        }
+        
+        if ( buffer.getShort( 4 ) != VERSION ) {
+            throw new IOException( "Unsupported level file version: " + buffer.getShort( 4 ) );
+        }
+        
+        this.chunkColumns = buffer.getShort( 6 );
+        this.columns = buffer.getInt( 8 );
+        this.lines = buffer.getInt( 12 );
+        this.heroColumn = buffer.getInt( 16 );
+        this.heroLine = buffer.getInt( 20 );
+        this.spawnCount = buffer.getInt( 24 );
+        this.chunkCount = buffer.getInt( 28 );
+        this.tileLayerOffset = buffer.getInt( 32 );
+        this.spawnTableOffset = buffer.getInt( 36 );
+        this.chunkIndexOffset = buffer.getInt( 40 );
+        
+        validate();
+        
+    }
+    
+    /**
+     * Checks the header against the size of the file, so a truncated or
+     * corrupted file fails when it is opened and not while playing.
+     */
+    private void validate() throws IOException {
+        
+        long size = buffer.capacity();
+        
+        if ( chunkColumns <= 0 || columns <= 0 || lines <= 0 || spawnCount < 0 || chunkCount <= 0 ) {
+            throw new IOException( String.format( 
+                    "Invalid level header: %d chunk columns, %d columns, %d lines, %d spawns, %d chunks.", 
+                    chunkColumns, columns, lines, spawnCount, chunkCount ) );
+        }
+        
+        checkSection( "tile layer", tileLayerOffset, (long) columns * lines, size );
+        checkSection( "spawn table", spawnTableOffset, (long) spawnCount * SPAWN_ENTRY_SIZE, size );
+        checkSection( "chunk index", chunkIndexOffset, (long) chunkCount * CHUNK_ENTRY_SIZE, size );
+        
+        // where each chunk starts reading the spawns
+        for ( int chunk = 0; chunk < chunkCount; chunk++ ) {
+            int first = buffer.getInt( chunkIndexOffset + chunk * CHUNK_ENTRY_SIZE );
+            if ( first < 0 || first > spawnCount ) {
+                throw new IOException( String.format( "Invalid first spawn %d of chunk %d.", first, chunk ) );
+            }
+        }
+        
+    }
+    
+    private static void checkSection( String name, int offset, long length, long size ) throws IOException {
+        if ( offset < HEADER_SIZE || offset + length > size ) {
+            throw new IOException( String.format( 
+                    "Truncated or corrupted level file: the %s (%d bytes at %d) doesn't fit in %d bytes.", 
+                    name, length, offset, size ) );
+        }
+    }
+    
+    public static MappedLevelData open( Path path ) throws IOException {
+        // the mapping stays valid after the channel is closed
+        try ( FileChannel channel = FileChannel.open( path, StandardOpenOption.READ ) ) {
+            return new MappedLevelData( channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ) );
+        }
+    }
+
+    @Override
+    public int getLines() {
+        return lines;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public char getTile( int column, int line ) {
+        return (char) ( buffer.get( tileLayerOffset + column * lines + line ) & 0xFF );
+    }
+
+    @Override
+    public int getHeroColumn() {
+        return heroColumn;
+    }
+
+    @Override
+    public int getHeroLine() {
+        return heroLine;
+    }
+
+    @Override
+    public void visitSpawns( int firstColumn, int lastColumn, SpawnVisitor visitor ) {
+        
+        if ( firstColumn >= lastColumn || spawnCount == 0 ) {
+            return;
+        }
+        
+        int chunk = Math.min( firstColumn / chunkColumns, chunkCount - 1 );
+        int entry = chunkIndexOffset + chunk * CHUNK_ENTRY_SIZE;
+        
+        for ( int i = buffer.getInt( entry ); i < spawnCount; i++ ) {
+            
+            int offset = spawnTableOffset + i * SPAWN_ENTRY_SIZE;
+            int column = buffer.getInt( offset );
+            
+            if ( column >= lastColumn ) {
+                break;
+            }
+            
+            if ( column >= firstColumn ) {
+                visitor.visit( (char) ( buffer.get( offset + 6 ) & 0xFF ), column, buffer.getShort( offset + 4 ) );
+            }
+            
+        }
+        
+    }
+
+    public int getChunkColumns() {
+        return chunkColumns;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+    
+}
@@ -0,0 +1,78 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import java.util.List;
+
+/**
+ * Merges contiguous solid tiles into large axis aligned rectangles.
+ * 
+ * Greedy meshing: for each solid cell not yet covered, the run of solid
+ * cells to its right is taken and then extended down while the whole run
+ * is solid on the next line. A floor row becomes one box and a wall
+ * column becomes another, instead of one box per tile.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class SolidMerger {
+    
+    /**
+     * Merges the solid cells of the grid between firstColumn (inclusive)
+     * and lastColumn (exclusive), registering each rectangle in the grid
+     * and adding it to result.
+     */
+    public static void merge( TileGrid grid, int firstColumn, int lastColumn, List<AABB> result ) {
+        
+        int width = lastColumn - firstColumn;
+        int lines = grid.getLines();
+        double cellSize = grid.getCellSize();
+        boolean[] covered = new boolean[width * lines];
+        
+        for ( int line = 0; line < lines; line++ ) {
+            for ( int column = firstColumn; column < lastColumn; column++ ) {
+                
+                if ( covered[line * width + column - firstColumn] || grid.get( column, line ) == null ) {
+                    continue;
+                }
+                
+                int endColumn = column + 1;
+                while ( endColumn < lastColumn && 
+                        !covered[line * width + endColumn - firstColumn] && 
+                        grid.get( endColumn, line ) != null ) {
+                    endColumn++;
+                }
+                
+                int endLine = line + 1;
+                while ( endLine < lines && isSolidRun( grid, covered, width, firstColumn, column, endColumn, endLine ) ) {
+                    endLine++;
+                }
+                
+                AABB solid = new AABB( 
+                    column * cellSize, line * cellSize, 
+                    endColumn * cellSize, endLine * cellSize, 
+                    AABB.Type.STATIC, grid
+                );
+                
+                for ( int l = line; l < endLine; l++ ) {
+                    for ( int c = column; c < endColumn; c++ ) {
+                        covered[l * width + c - firstColumn] = true;
+                        grid.setSolid( c, l, solid );
+                    }
+                }
+                
+                result.add( solid );
+                
+            }
+        }
+        
+    }
+    
+    private static boolean isSolidRun( TileGrid grid, boolean[] covered, int width, int firstColumn, int startColumn, int endColumn, int line ) {
+        for ( int c = startColumn; c < endColumn; c++ ) {
+            if ( covered[line * width + c - firstColumn] || grid.get( c, line ) == null ) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+}
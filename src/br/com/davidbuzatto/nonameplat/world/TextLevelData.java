@@ -0,0 +1,126 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Level data parsed from its ASCII representation, one character per cell.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class TextLevelData implements LevelData {
+    
+    private final int lines;
+    private final int columns;
+    private final char[] cells;
+    
+    private int heroColumn;
+    private int heroLine;
+    
+    public TextLevelData( int lines, int columns ) {
+        this.lines = lines;
+        this.columns = columns;
+        this.cells = new char[lines * columns];
+        Arrays.fill( cells, EMPTY );
+    }
+    
+    public static TextLevelData fromFile( Path path ) throws IOException {
+        return fromText( Files.readString( path, StandardCharsets.UTF_8 ).replace( "\r", "" ) );
+    }
+    
+    public static TextLevelData fromText( String mapData ) {
+        
+        int lines = 0;
+        int columns = 0;
+        int currentColumn = 0;
+        
+        for ( int i = 0; i < mapData.length(); i++ ) {
+            if ( mapData.charAt( i ) == '\n' ) {
+                lines++;
+                currentColumn = 0;
+            } else {
+                currentColumn++;
+                if ( columns < currentColumn ) {
+                    columns = currentColumn;
+                }
+            }
+        }
+        
+        if ( currentColumn > 0 ) {
+            lines++;
+        }
+        
+        TextLevelData level = new TextLevelData( lines, columns );
+        int currentLine = 0;
+        currentColumn = 0;
+        
+        for ( int i = 0; i < mapData.length(); i++ ) {
+            char c = mapData.charAt( i );
+            if ( c == '\n' ) {
+                currentLine++;
+                currentColumn = 0;
+            } else {
+                level.setCell( currentColumn, currentLine, c );
+                currentColumn++;
+            }
+        }
+        
+        return level;
+        
+    }
+    
+    public void setCell( int column, int line, char c ) {
+        cells[line * columns + column] = c;
+        if ( c == HERO ) {
+            heroColumn = column;
+            heroLine = line;
+        }
+    }
+    
+    public char getCell( int column, int line ) {
+        return cells[line * columns + column];
+    }
+    
+    @Override
+    public char getTile( int column, int line ) {
+        char c = cells[line * columns + column];
+        return LevelData.isTile( c ) ? c : EMPTY;
+    }
+    
+    @Override
+    public void visitSpawns( int firstColumn, int lastColumn, SpawnVisitor visitor ) {
+        int last = Math.min( lastColumn, columns );
+        for ( int column = Math.max( firstColumn, 0 ); column < last; column++ ) {
+            for ( int line = 0; line < lines; line++ ) {
+                char c = cells[line * columns + column];
+                if ( c == ENEMY || c == COIN ) {
+                    visitor.visit( c, column, line );
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getLines() {
+        return lines;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int getHeroColumn() {
+        return heroColumn;
+    }
+
+    @Override
+    public int getHeroLine() {
+        return heroLine;
+    }
+    
+}
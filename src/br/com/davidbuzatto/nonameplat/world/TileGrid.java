@@ -0,0 +1,135 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.nonameplat.entities.tiles.Tile;
+import java.util.List;
+
+/**
+ * A dense grid of tiles, indexed by column and line.
+ *
+ * Answers which tiles touch a region visiting only the cells that the
+ * region covers. Each cell also references the merged solid rectangle
+ * that covers it (see SolidMerger), used for collision resolution.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class TileGrid {
+
+    private final int columns;
+    private final int lines;
+    private final double cellSize;
+    private final Tile[] cells;
+    private final AABB[] solids;
+
+    public TileGrid( int columns, int lines, double cellSize ) {
+        this.columns = columns;
+        this.lines = lines;
+        this.cellSize = cellSize;
+        this.cells = new Tile[columns * lines];
+        this.solids = new AABB[columns * lines];
+    }
+
+    public void add( Tile tile ) {
+        set( getColumn( tile.getX() ), getLine( tile.getY() ), tile );
+    }
+
+    public void set( int column, int line, Tile tile ) {
+        if ( contains( column, line ) ) {
+            cells[line * columns + column] = tile;
+        }
+    }
+
+    public Tile get( int column, int line ) {
+        if ( contains( column, line ) ) {
+            return cells[line * columns + column];
+        }
+        return null;
+    }
+
+    public void setSolid( int column, int line, AABB solid ) {
+        if ( contains( column, line ) ) {
+            solids[line * columns + column] = solid;
+        }
+    }
+    
+    public AABB getSolid( int column, int line ) {
+        if ( contains( column, line ) ) {
+            return solids[line * columns + column];
+        }
+        return null;
+    }
+    
+    public boolean contains( int column, int line ) {
+        return column >= 0 && column < columns && line >= 0 && line < lines;
+    }
+
+    public int getColumn( double x ) {
+        return (int) Math.floor( x / cellSize );
+    }
+
+    public int getLine( double y ) {
+        return (int) Math.floor( y / cellSize );
+    }
+
+    /**
+     * Collects the tiles of the cells touched by the region (x1, y1)-(x2, y2).
+     * The result list is not cleared, so callers can reuse it between queries.
+     */
+    public void query( double x1, double y1, double x2, double y2, List<Tile> result ) {
+
+        int c1 = Math.max( getColumn( x1 ), 0 );
+        int l1 = Math.max( getLine( y1 ), 0 );
+        int c2 = Math.min( getColumn( x2 ), columns - 1 );
+        int l2 = Math.min( getLine( y2 ), lines - 1 );
+
+        for ( int line = l1; line <= l2; line++ ) {
+            int base = line * columns;
+            for ( int column = c1; column <= c2; column++ ) {
+                Tile t = cells[base + column];
+                if ( t != null ) {
+                    result.add( t );
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Collects the solid rectangles touched by the region (x1, y1)-(x2, y2).
+     * Each rectangle is added once, at the first of its cells inside the
+     * region. The result list is not cleared.
+     */
+    public void querySolids( double x1, double y1, double x2, double y2, List<AABB> result ) {
+
+        int c1 = Math.max( getColumn( x1 ), 0 );
+        int l1 = Math.max( getLine( y1 ), 0 );
+        int c2 = Math.min( getColumn( x2 ), columns - 1 );
+        int l2 = Math.min( getLine( y2 ), lines - 1 );
+
+        for ( int line = l1; line <= l2; line++ ) {
+            int base = line * columns;
+            for ( int column = c1; column <= c2; column++ ) {
+                AABB s = solids[base + column];
+                if ( s != null && 
+                     column == Math.max( c1, getColumn( s.x1 ) ) && 
+                     line == Math.max( l1, getLine( s.y1 ) ) ) {
+                    result.add( s );
+                }
+            }
+        }
+
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+}
@@ -0,0 +1,79 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
+import br.com.davidbuzatto.jsge.image.Image;
+import br.com.davidbuzatto.jsge.image.ImageUtils;
+import br.com.davidbuzatto.nonameplat.entities.tiles.Tile;
+import java.util.List;
+
+/**
+ * Draws the static tiles baked into one offscreen image per chunk.
+ * 
+ * A chunk is baked when it loads and baked again only when one of its
+ * tiles changes, so drawing the tiles costs one blit per visible chunk.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class TileLayerRenderer {
+    
+    private final ChunkManager chunkManager;
+    private final double cellSize;
+    private final int chunkWidth;
+    private final int chunkHeight;
+    
+    public TileLayerRenderer( ChunkManager chunkManager, double cellSize ) {
+        this.chunkManager = chunkManager;
+        this.cellSize = cellSize;
+        this.chunkWidth = (int) ( chunkManager.getChunkColumns() * cellSize );
+        this.chunkHeight = (int) ( chunkManager.getLevel().getLines() * cellSize );
+    }
+    
+    /**
+     * Bakes the loaded chunks that are new or had tiles changed.
+     */
+    public void bakeDirtyChunks() {
+        List<WorldChunk> loadedChunks = chunkManager.getLoadedChunks();
+        for ( int i = 0; i < loadedChunks.size(); i++ ) {
+            WorldChunk c = loadedChunks.get( i );
+            if ( c.isTileLayerDirty() ) {
+                bake( c );
+            }
+        }
+    }
+    
+    private void bake( WorldChunk chunk ) {
+        
+        Image layer = ImageUtils.createImage( chunkWidth, chunkHeight );
+        double originX = chunk.getFirstColumn() * cellSize;
+        
+        for ( Tile t : chunk.getTiles() ) {
+            t.draw( layer, originX, 0 );
+        }
+        
+        chunk.setTileLayer( layer );
+        chunk.setTileLayerDirty( false );
+        
+    }
+    
+    /**
+     * Draws the baked chunks that overlap the region from x1 to x2.
+     */
+    public void draw( EngineFrame e, double x1, double x2 ) {
+        
+        WorldChunk[] chunks = chunkManager.getChunks();
+        int first = chunkManager.getChunkIndex( x1 );
+        int last = chunkManager.getChunkIndex( x2 );
+        
+        for ( int i = first; i <= last; i++ ) {
+            WorldChunk c = chunks[i];
+            if ( c.isLoaded() ) {
+                if ( c.isTileLayerDirty() ) {
+                    bake( c );
+                }
+                e.drawImage( c.getTileLayer(), c.getFirstColumn() * cellSize, 0 );
+            }
+        }
+        
+    }
+    
+}
@@ -0,0 +1,609 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.jsge.core.engine.EngineFrame;
+import br.com.davidbuzatto.jsge.image.Image;
+import br.com.davidbuzatto.nonameplat.GameWorld;
+import br.com.davidbuzatto.nonameplat.animation.AnimationSet;
+import br.com.davidbuzatto.nonameplat.animation.AnimationTimelines;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache;
+import br.com.davidbuzatto.nonameplat.assets.AssetCache.Transform;
+import br.com.davidbuzatto.nonameplat.assets.AssetLoader;
+import br.com.davidbuzatto.nonameplat.collision.Broadphase;
+import br.com.davidbuzatto.nonameplat.collision.ContactListener;
+import br.com.davidbuzatto.nonameplat.collision.ContactPass;
+import br.com.davidbuzatto.nonameplat.collision.EntityContactResolver;
+import br.com.davidbuzatto.nonameplat.entities.Entity;
+import br.com.davidbuzatto.nonameplat.entities.EntityPool;
+import br.com.davidbuzatto.nonameplat.entities.EntityRegistry;
+import br.com.davidbuzatto.nonameplat.entities.EntityStore;
+import br.com.davidbuzatto.nonameplat.entities.characters.BaseEnemy;
+import br.com.davidbuzatto.nonameplat.entities.characters.Hero;
+import br.com.davidbuzatto.nonameplat.entities.characters.HeroInput;
+import br.com.davidbuzatto.nonameplat.entities.effects.Effect;
+import br.com.davidbuzatto.nonameplat.entities.items.Coin;
+import br.com.davidbuzatto.nonameplat.profiling.FrameProfiler;
+import br.com.davidbuzatto.nonameplat.profiling.FrameProfiler.Phase;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The simulation state of a level: map, entities, broadphase and physics.
+ *
+ * Knows nothing about windows or drawing, so it can run inside the game
+ * (see GameWorld) or headless (see HeadlessRunner). The world advances in
+ * fixed steps and, given the same input in each step, always ends in the
+ * same state.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class World {
+
+    public static final double GRAVITY = 1200;
+
+    // world streaming, in chunks of columns
+    public static final int CHUNK_COLUMNS = 16;
+    public static final int CHUNK_ACTIVE_RADIUS = 1;
+    public static final int CHUNK_LOAD_RADIUS = 2;
+
+    // QUADTREE, SPATIAL_HASH or SWEEP_AND_PRUNE
+    public static final String BROADPHASE_PROPERTY = "nonameplat.broadphase";
+    public static final Broadphase.Type DEFAULT_BROADPHASE = Broadphase.Type.SPATIAL_HASH;
+
+    // fixed step simulation, in steps per second
+    public static final String SIMULATION_RATE_PROPERTY = "nonameplat.simulationRate";
+    public static final int DEFAULT_SIMULATION_RATE = 120;
+
+    // longest frame time simulated, so a stall doesn't snowball
+    public static final double MAX_FRAME_TIME = 0.25;
+
+    private static final String TILE_SKIN_PATH = "resources/images/tiles/field/tile%c.png";
+    private static final String DOUBLE_JUMP_DUST_PATH = "resources/images/sprites/hero/doubleJumpDust.png";
+
+    private final double cellSize;
+    private int lines;
+    private int columns;
+    private double worldWidth;
+    private double worldHeight;
+
+    // physics fields of the entities: what moves is interpolated for
+    // drawing, what doesn't (coins and tiles) is only read
+    private final EntityRegistry registry;
+    private final EntityStore dynamicStore;
+    private final EntityStore staticStore;
+
+    // spawned entities come from pools, so spawning doesn't allocate
+    private final AnimationTimelines timelines;
+    private final EntityPool<BaseEnemy> enemyPool;
+    private final EntityPool<Coin> coinPool;
+    private final EntityPool<Effect> doubleJumpDustPool;
+
+    private final Hero hero;
+    private final HeroInput heroInput;
+
+    private List<BaseEnemy> enemies;
+    private List<Coin> coins;
+    private final List<Effect> effects;
+
+    private Map<Character, Image> tileSkins;
+    private TileGrid tileGrid;
+    private ChunkManager chunkManager;
+    private final EntityLifecycle lifecycle;
+
+    // static solids live in the tile grid, entities in the broadphase
+    private List<AABB> aabbs;
+    private List<AABB> previousAABBs;
+    private final Set<AABB> currentAABBs;
+    private final List<AABB> heroAABBs;
+    private final Broadphase broadphase;
+    private final ContactPass contactPass;
+    private final ContactListener contactListener;
+    private final EnemySimulator enemySimulator;
+
+    private final double stepTime;
+    private double accumulator;
+    private long tick;
+
+    private InputScript inputScript;
+    private InputScript inputRecorder;
+
+    private final FrameProfiler profiler;
+
+    /**
+     * Creates a world with the broadphase and simulation rate given by the
+     * system properties, or the defaults.
+     */
+    public World( String levelBasePath ) {
+        this(
+            levelBasePath,
+            Broadphase.Type.valueOf( System.getProperty( BROADPHASE_PROPERTY, DEFAULT_BROADPHASE.name() ).toUpperCase() ),
+            Integer.getInteger( SIMULATION_RATE_PROPERTY, DEFAULT_SIMULATION_RATE ),
+            Runtime.getRuntime().availableProcessors()
+        );
+    }
+
+    /**
+     * @param levelBasePath path of the level, without extension.
+     * @param parallelism threads used to update the enemies.
+     */
+    public World( String levelBasePath, Broadphase.Type broadphaseType, int simulationRate, int parallelism ) {
+
+        this.cellSize = GameWorld.BASE_WIDTH;
+        this.stepTime = 1.0 / simulationRate;
+        this.profiler = new FrameProfiler();
+
+        this.registry = new EntityRegistry( 1024 );
+        this.dynamicStore = new EntityStore( registry, 64 );
+        this.staticStore = new EntityStore( registry, 1024 );
+
+        this.timelines = new AnimationTimelines();
+        this.enemyPool = new EntityPool<>( "enemies", 16, pool -> new BaseEnemy( dynamicStore, timelines, 0, 0, EngineFrame.RED ) );
+        this.coinPool = new EntityPool<>( "coins", 64, pool -> new Coin( staticStore, timelines, 0, 0, EngineFrame.RED ) );
+        this.doubleJumpDustPool = new EntityPool<>( "double jump dust", 4, pool -> new Effect( staticStore, pool, DOUBLE_JUMP_DUST_PATH, 64, 64, 0.1 ) );
+        this.effects = new ArrayList<>();
+
+        this.hero = new Hero(
+            dynamicStore,
+            timelines,
+            0, 0,
+            EngineFrame.BLUE
+        );
+        this.hero.setDoubleJumpListener( this::spawnDoubleJumpDust );
+        this.heroInput = new HeroInput();
+        this.heroAABBs = List.of( hero.getAABB() );
+        this.aabbs = new ArrayList<>();
+        this.previousAABBs = new ArrayList<>();
+        this.currentAABBs = Collections.newSetFromMap( new IdentityHashMap<>() );
+        this.lifecycle = new EntityLifecycle();
+
+        loadTileSkins();
+        loadLevel( levelBasePath );
+
+        this.broadphase = broadphaseType.create( cellSize * 2, worldWidth, worldHeight );
+        this.contactPass = new ContactPass();
+        this.contactListener = new EntityContactResolver() {
+            @Override
+            public void heroCoin( Hero hero, Coin coin ) {
+                super.heroCoin( hero, coin );
+                if ( !coin.isActive() ) {
+                    lifecycle.despawn( coin );
+                }
+            }
+        };
+        this.enemySimulator = new EnemySimulator( parallelism );
+
+        chunkManager.update( hero.getX() );
+        initAABBs();
+
+    }
+
+    /**
+     * Adds the images every level uses to a loader, so creating the world
+     * after the loader is finished finds them cached.
+     */
+    public static void preload( AssetLoader loader ) {
+
+        for ( char c = 'A'; c <= 'N'; c++ ) {
+            loader.add( String.format( TILE_SKIN_PATH, c ) );
+        }
+
+        loader.add( DOUBLE_JUMP_DUST_PATH );
+        loader.add( Coin.IMAGE_PATH );
+
+        for ( String path : List.of( Hero.ANIMATIONS_PATH, BaseEnemy.ANIMATIONS_PATH ) ) {
+            try {
+                AnimationSet.preload( Path.of( path ), loader );
+            } catch ( IOException exc ) {
+                throw new UncheckedIOException( "Could not load animations " + path, exc );
+            }
+        }
+
+    }
+
+    /**
+     * Runs as many fixed steps as fit in the elapsed time and positions
+     * what is drawn between the last two of them.
+     *
+     * @return how many steps were run.
+     */
+    public int update( double frameTime ) {
+
+        int steps = 0;
+
+        accumulator += Math.min( frameTime, MAX_FRAME_TIME );
+        while ( accumulator >= stepTime ) {
+            step();
+            accumulator -= stepTime;
+            steps++;
+        }
+
+        interpolate( accumulator / stepTime );
+
+        return steps;
+
+    }
+
+    /**
+     * Advances the simulation by one fixed step.
+     */
+    public void step() {
+
+        if ( inputScript != null ) {
+            inputScript.apply( tick, heroInput );
+        }
+
+        if ( inputRecorder != null ) {
+            inputRecorder.record( heroInput );
+        }
+
+        profiler.begin( Phase.HERO );
+        hero.move( heroInput, stepTime );
+        profiler.end( Phase.HERO );
+
+        moveEnemies();
+
+        // enemy vs. solid contacts were resolved in parallel by moveEnemies,
+        // the rest of the contacts of the step are found here, once
+        profiler.begin( Phase.CONTACTS );
+        contactPass.run( tileGrid, broadphase, heroAABBs, enemySimulator.getSolidPairs(), contactListener );
+        profiler.end( Phase.CONTACTS );
+
+        profiler.begin( Phase.HERO );
+        hero.finishUpdate( heroInput, stepTime );
+        updateEffects();
+        profiler.end( Phase.HERO );
+
+        updateEnemies();
+
+        // the loops shown by coins and enemies, once per clip
+        profiler.begin( Phase.ANIMATIONS );
+        timelines.update( stepTime );
+        profiler.end( Phase.ANIMATIONS );
+
+        // the safe point of the step: nothing is iterating the entities
+        profiler.begin( Phase.CHUNKS );
+        lifecycle.apply( chunkManager, broadphase, aabbs, effects );
+        updateChunks();
+        profiler.end( Phase.CHUNKS );
+
+        tick++;
+
+    }
+
+    /**
+     * Positions what is drawn between the last two simulation steps.
+     */
+    private void interpolate( double alpha ) {
+        dynamicStore.interpolate( alpha );
+    }
+
+    /**
+     * Streams chunks around the hero. The broadphase only holds what is
+     * active, so it is synchronized when the active set changes.
+     */
+    private void updateChunks() {
+        if ( chunkManager.update( hero.getX() ) ) {
+            initAABBs();
+        }
+    }
+
+    private void moveEnemies() {
+
+        profiler.begin( Phase.ENEMIES );
+        enemySimulator.move( enemies, tileGrid, contactListener, stepTime );
+        profiler.end( Phase.ENEMIES );
+
+        updateBroadphase();
+
+    }
+
+    private void updateEnemies() {
+
+        profiler.begin( Phase.ENEMIES );
+        enemySimulator.finishUpdate( enemies, stepTime );
+        for ( int i = 0; i < enemies.size(); i++ ) {
+            BaseEnemy e = enemies.get( i );
+            if ( e.isDead() ) {
+                lifecycle.despawn( e );
+            }
+        }
+        profiler.end( Phase.ENEMIES );
+
+        updateBroadphase();
+
+    }
+
+    private void updateBroadphase() {
+        profiler.begin( Phase.BROADPHASE );
+        broadphase.move( hero.getAABB() );
+        for ( int i = 0; i < enemies.size(); i++ ) {
+            broadphase.move( enemies.get( i ).getAABB() );
+        }
+        profiler.end( Phase.BROADPHASE );
+    }
+
+    private void updateEffects() {
+        for ( int i = 0; i < effects.size(); i++ ) {
+            Effect e = effects.get( i );
+            e.update( stepTime );
+            if ( e.isFinished() ) {
+                lifecycle.despawn( e );
+            }
+        }
+    }
+
+    private void spawnDoubleJumpDust( double x, double y ) {
+        lifecycle.spawn( doubleJumpDustPool.obtain( x, y ) );
+    }
+
+    private void loadTileSkins() {
+
+        tileSkins = new HashMap<>();
+        for ( char c = 'A'; c <= 'N'; c++ ) {
+            tileSkins.put( c, AssetCache.getShared().acquireImage( String.format( TILE_SKIN_PATH, c ), Transform.NONE ) );
+        }
+
+    }
+
+    /**
+     * Loads a level by its path without extension. The compiled (.lvl)
+     * version is memory mapped when present, otherwise the ASCII (.txt)
+     * one is parsed.
+     */
+    private void loadLevel( String basePath ) {
+
+        LevelData level;
+
+        try {
+            level = LevelCompiler.load( basePath );
+        } catch ( IOException exc ) {
+            throw new UncheckedIOException( "Could not load level " + basePath, exc );
+        }
+
+        lines = level.getLines();
+        columns = level.getColumns();
+        worldWidth = columns * cellSize;
+        worldHeight = lines * cellSize;
+
+        hero.placeAt( level.getHeroColumn() * cellSize, level.getHeroLine() * cellSize );
+
+        tileGrid = new TileGrid( columns, lines, cellSize );
+        chunkManager = new ChunkManager( level, tileGrid, tileSkins, staticStore, enemyPool, coinPool, CHUNK_COLUMNS, CHUNK_ACTIVE_RADIUS, CHUNK_LOAD_RADIUS );
+        enemies = chunkManager.getActiveEnemies();
+        coins = chunkManager.getActiveCoins();
+
+    }
+
+    /**
+     * Synchronizes the broadphase with the active entities. Entities
+     * already indexed stay there, only the difference is inserted or
+     * removed.
+     */
+    private void initAABBs() {
+
+        // the two lists are swapped and reused, streaming happens often
+        List<AABB> previous = aabbs;
+        aabbs = previousAABBs;
+        previousAABBs = previous;
+
+        aabbs.clear();
+        aabbs.add( hero.getAABB() );
+
+        for ( BaseEnemy e : enemies ) {
+            aabbs.add( e.getAABB() );
+        }
+
+        for ( Coin c : coins ) {
+            aabbs.add( c.getAABB() );
+        }
+
+        currentAABBs.clear();
+        currentAABBs.addAll( aabbs );
+        for ( int i = 0; i < previous.size(); i++ ) {
+            AABB a = previous.get( i );
+            if ( !currentAABBs.contains( a ) ) {
+                broadphase.remove( a );
+            }
+        }
+        previous.clear();
+
+        // an entity may have been unloaded and reused from its pool in the
+        // same update, still indexed where it was
+        for ( int i = 0; i < aabbs.size(); i++ ) {
+            AABB a = aabbs.get( i );
+            if ( broadphase.contains( a ) ) {
+                broadphase.move( a );
+            } else {
+                broadphase.insert( a );
+            }
+        }
+
+    }
+
+    /**
+     * A hash of the state that matters for the gameplay, to check that two
+     * runs with the same input ended the same way.
+     */
+    public long stateHash() {
+
+        long h = tick;
+        h = 31 * h + Double.doubleToLongBits( hero.getX() );
+        h = 31 * h + Double.doubleToLongBits( hero.getY() );
+        h = 31 * h + Double.doubleToLongBits( hero.getVelX() );
+        h = 31 * h + Double.doubleToLongBits( hero.getVelY() );
+        h = 31 * h + hero.getHp();
+        h = 31 * h + hero.getCoins();
+
+        for ( int i = 0; i < enemies.size(); i++ ) {
+            BaseEnemy e = enemies.get( i );
+            h = 31 * h + Double.doubleToLongBits( e.getX() );
+            h = 31 * h + Double.doubleToLongBits( e.getY() );
+            h = 31 * h + ( e.isAlive() ? 1 : 0 );
+        }
+
+        return h;
+
+    }
+
+    /**
+     * Stops the threads used by the simulation and releases the assets of
+     * the level, evicting from the asset cache what no other world uses.
+     */
+    public void dispose() {
+
+        enemySimulator.dispose();
+
+        // the entities of the loaded chunks go back to their pools
+        chunkManager.dispose();
+        for ( int i = 0; i < effects.size(); i++ ) {
+            doubleJumpDustPool.free( effects.get( i ) );
+        }
+        effects.clear();
+
+        hero.dispose();
+        enemyPool.dispose();
+        coinPool.dispose();
+        doubleJumpDustPool.dispose();
+        timelines.dispose();
+
+        for ( char c : tileSkins.keySet() ) {
+            AssetCache.getShared().release( String.format( TILE_SKIN_PATH, c ), Transform.NONE );
+        }
+
+        AssetCache.getShared().evictUnused();
+
+    }
+
+    /**
+     * Replays the input of a script, from tick 0, instead of using the
+     * input set in getHeroInput().
+     */
+    public void setInputScript( InputScript inputScript ) {
+        this.inputScript = inputScript;
+    }
+
+    /**
+     * Records the input of every step into the given script.
+     */
+    public void setInputRecorder( InputScript inputRecorder ) {
+        this.inputRecorder = inputRecorder;
+    }
+
+    public Hero getHero() {
+        return hero;
+    }
+
+    public HeroInput getHeroInput() {
+        return heroInput;
+    }
+
+    public List<BaseEnemy> getEnemies() {
+        return enemies;
+    }
+
+    public List<Coin> getCoins() {
+        return coins;
+    }
+
+    /**
+     * @return the effects being played, drawn over the map.
+     */
+    public List<Effect> getEffects() {
+        return effects;
+    }
+
+    public AnimationTimelines getTimelines() {
+        return timelines;
+    }
+
+    public EntityPool<BaseEnemy> getEnemyPool() {
+        return enemyPool;
+    }
+
+    public EntityPool<Coin> getCoinPool() {
+        return coinPool;
+    }
+
+    public EntityPool<Effect> getDoubleJumpDustPool() {
+        return doubleJumpDustPool;
+    }
+
+    public TileGrid getTileGrid() {
+        return tileGrid;
+    }
+
+    public ChunkManager getChunkManager() {
+        return chunkManager;
+    }
+
+    /**
+     * Where entities created or discarded during a step are queued.
+     */
+    public EntityLifecycle getLifecycle() {
+        return lifecycle;
+    }
+
+    /**
+     * Times the phases of the simulation. Whoever drives the world closes
+     * the frames.
+     */
+    public FrameProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * @return the entity of a handle or null if it was discarded.
+     */
+    public Entity getEntity( long handle ) {
+        return registry.get( handle );
+    }
+
+    public EntityRegistry getRegistry() {
+        return registry;
+    }
+
+    public EntityStore getDynamicStore() {
+        return dynamicStore;
+    }
+
+    public EntityStore getStaticStore() {
+        return staticStore;
+    }
+
+    public Broadphase getBroadphase() {
+        return broadphase;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public double getWorldWidth() {
+        return worldWidth;
+    }
+
+    public double getWorldHeight() {
+        return worldHeight;
+    }
+
+    public double getStepTime() {
+        return stepTime;
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+}
@@ -0,0 +1,121 @@
+package br.com.davidbuzatto.nonameplat.world;
+
+import br.com.davidbuzatto.jsge.collision.aabb.AABB;
+import br.com.davidbuzatto.jsge.image.Image;
+import br.com.davidbuzatto.nonameplat.entities.characters.BaseEnemy;
+import br.com.davidbuzatto.nonameplat.entities.items.Coin;
+import br.com.davidbuzatto.nonameplat.entities.tiles.Tile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fixed width slice of columns of the world and the entities inside it.
+ *
+ * @author Prof. Dr. David Buzatto
+ */
+public class WorldChunk {
+    
+    public static enum State {
+        UNLOADED,
+        SLEEPING,
+        ACTIVE;
+    }
+    
+    private final int index;
+    private final int firstColumn;
+    private final int lastColumn;
+    private State state;
+    
+    private final List<Tile> tiles;
+    private final List<BaseEnemy> enemies;
+    private final List<Coin> coins;
+    private final List<AABB> solids;
+    
+    // baked static tiles
+    private Image tileLayer;
+    private boolean tileLayerDirty;
+    
+    public WorldChunk( int index, int firstColumn, int lastColumn ) {
+        this.index = index;
+        this.firstColumn = firstColumn;
+        this.lastColumn = lastColumn;
+        this.state = State.UNLOADED;
+        this.tiles = new ArrayList<>();
+        this.enemies = new ArrayList<>();
+        this.coins = new ArrayList<>();
+        this.solids = new ArrayList<>();
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the first column of this chunk, inclusive.
+     */
+    public int getFirstColumn() {
+        return firstColumn;
+    }
+
+    /**
+     * @return the last column of this chunk, exclusive.
+     */
+    public int getLastColumn() {
+        return lastColumn;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState( State state ) {
+        this.state = state;
+    }
+    
+    public boolean isLoaded() {
+        return state != State.UNLOADED;
+    }
+    
+    public boolean isActive() {
+        return state == State.ACTIVE;
+    }
+
+    public List<Tile> getTiles() {
+        return tiles;
+    }
+
+    public List<BaseEnemy> getEnemies() {
+        return enemies;
+    }
+
+    public List<Coin> getCoins() {
+        return coins;
+    }
+
+    /**
+     * @return the merged solid rectangles of this chunk.
+     */
+    public List<AABB> getSolids() {
+        return solids;
+    }
+
+    public Image getTileLayer() {
+        return tileLayer;
+    }
+
+    public void setTileLayer( Image tileLayer ) {
+        this.tileLayer = tileLayer;
+    }
+
+    public boolean isTileLayerDirty() {
+        return tileLayerDirty;
+    }
+
+    /**
+     * Marks the baked tile layer as outdated, so it is baked again.
+     */
+    public void setTileLayerDirty( boolean tileLayerDirty ) {
+        this.tileLayerDirty = tileLayerDirty;
+    }
+    
+}